@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.vds.nlp.uima.model.lifecycle.LifecycleEventExecutor;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+/**
+ * Measures {@link Annotator#process(Document)} on a lesson document scaled to the benchmark size. Every operation
+ * processes a batch of fresh documents holding at least {@link #BATCH_CHARS} chars together, so documents smaller than
+ * that are processed several at a time and the per-invocation setup and timing stay small against the measured work.
+ * The document creation is not measured. The throughput in MB/s is the batch size times the size times the operations
+ * per millisecond divided by 1000.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+@SuppressWarnings("unchecked")
+public abstract class AbstractAnnotatorBenchmark {
+
+    /**
+     * Minimum number of chars processed by one operation.
+     */
+    static final int BATCH_CHARS = 1 << 20;
+
+    /**
+     * Input size in chars: 1 KB, 1 MB and 100 MB.
+     */
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    private String text;
+    private Annotator annotator;
+    private IeDocument[] documents;
+
+    /**
+     * Returns the lesson document to scale, relative to the project root.
+     */
+    protected abstract String getInputPath();
+
+    protected abstract Annotator createAnnotator() throws Exception;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        text = BenchmarkInputs.scale(BenchmarkInputs.read(getInputPath()), size);
+        annotator = createAnnotator();
+        LifecycleEventExecutor.getInstance().executeInit(annotator, Collections.emptyMap());
+        documents = new IeDocument[Math.max(1, BATCH_CHARS / size)];
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        for (int i = 0; i < documents.length; i++) {
+            documents[i] = DocumentFactory.createIeDocument(text, text);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        LifecycleEventExecutor.getInstance().executeDestroy(annotator, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public IeDocument[] process() {
+        for (IeDocument document : documents) {
+            annotator.process(document);
+        }
+        return documents;
+    }
+
+}
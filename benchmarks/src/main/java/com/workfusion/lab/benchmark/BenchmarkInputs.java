@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.workfusion.lab.utils.NormalizedText;
+
+/**
+ * Synthetic benchmark inputs scaled from the lesson documents.
+ * <p>
+ * Paths are resolved against the {@code benchmark.root} system property, the current directory by default, so the
+ * benchmarks are expected to run from the project root.
+ */
+final class BenchmarkInputs {
+
+    static final String ROOT_PROPERTY = "benchmark.root";
+
+    private BenchmarkInputs() {
+    }
+
+    static Path resolve(String path) {
+        return Paths.get(System.getProperty(ROOT_PROPERTY, ".")).resolve(path);
+    }
+
+    /**
+     * Reads the document with the line endings normalized the same way BaseLessonTest.getDocument does.
+     */
+    static String read(String path) throws IOException {
+        return NormalizedText.read(resolve(path)).getText();
+    }
+
+    /**
+     * Repeats the text, separated by line breaks, and cuts it to the exact size.
+     */
+    static String scale(String text, int size) {
+        StringBuilder result = new StringBuilder(size + text.length() + 2);
+        while (result.length() < size) {
+            result.append(text).append("\r\n");
+        }
+        result.setLength(size);
+        return result.toString();
+    }
+
+    /**
+     * Repeats the body content of the HTML document until the document reaches at least the size. The head and the
+     * body element are kept once so the result stays one well-formed document.
+     */
+    static String scaleHtml(String html, int size) {
+        int bodyStart = html.indexOf('>', html.indexOf("<body")) + 1;
+        int bodyEnd = html.lastIndexOf("</body>");
+        if (bodyStart <= 0 || bodyEnd < bodyStart) {
+            return scale(html, size);
+        }
+        String body = html.substring(bodyStart, bodyEnd);
+        StringBuilder result = new StringBuilder(size + html.length());
+        result.append(html, 0, bodyStart);
+        while (result.length() + html.length() - bodyEnd < size) {
+            result.append(body);
+        }
+        result.append(html, bodyEnd, html.length());
+        return result.toString();
+    }
+
+}
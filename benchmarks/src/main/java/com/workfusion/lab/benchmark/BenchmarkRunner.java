@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so allocation rates are reported next to throughput and
+ * average time. The module is only built with the {@code benchmarks} profile. Accepts the regular JMH command line
+ * options, e.g. to run the tokenizer on small inputs only:
+ * <pre>
+ * mvn -P benchmarks -pl benchmarks -am package
+ * java -jar benchmarks/target/benchmarks.jar TokenAnnotatorBenchmark -p size=1024,1048576
+ * </pre>
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.utils.BaseLessonTest;
+import com.workfusion.lab.utils.CorpusStore;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.Tag;
+
+/**
+ * Processed document loading benchmark: parsing the lesson 4 HTML document scaled to the benchmark size again against
+ * reading it from a {@link CorpusStore}, as an ML-SDK document and through the stored element tables.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class CorpusStoreBenchmark {
+
+    /**
+     * Input size in chars: 1 KB and 1 MB.
+     */
+    @Param({"1024", "1048576"})
+    public int size;
+
+    private Path htmlFile;
+    private Path storeFile;
+    private CorpusStore store;
+    private final DocumentLoader loader = new DocumentLoader();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String html = BenchmarkInputs.scaleHtml(BenchmarkInputs.read(DocumentParserBenchmark.HTML_PATH), size);
+        htmlFile = Files.createTempFile("benchmark", ".html");
+        Files.write(htmlFile, html.getBytes(StandardCharsets.UTF_8));
+        storeFile = Files.createTempFile("benchmark", ".corpus");
+        try (CorpusStore.Writer writer = CorpusStore.append(storeFile)) {
+            writer.append(loader.load(htmlFile.toString()));
+        }
+        store = CorpusStore.open(storeFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(htmlFile);
+        Files.deleteIfExists(storeFile);
+    }
+
+    @Benchmark
+    public IeDocument getDocument() throws IOException {
+        return loader.load(htmlFile.toString());
+    }
+
+    @Benchmark
+    public IeDocument storedDocument() throws IOException {
+        return store.get(0).toDocument();
+    }
+
+    /**
+     * Reads the tag names and spans without building elements.
+     */
+    @Benchmark
+    public long storedTags() throws IOException {
+        CorpusStore.ElementTable tags = store.get(0).getElements(Tag.class);
+        long sum = 0;
+        for (int i = 0; i < tags.size(); i++) {
+            sum += tags.getName(i).length() + tags.getEnd(i) - tags.getBegin(i);
+        }
+        return sum;
+    }
+
+    /**
+     * Exposes the protected document loading helper.
+     */
+    private static class DocumentLoader extends BaseLessonTest {
+
+        IeDocument load(String documentPath) throws IOException {
+            return getDocument(documentPath);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.utils.DocumentParser;
+
+/**
+ * {@link DocumentParser#prepareDocumentContent(String)} benchmark on the lesson 4 HTML document scaled to the
+ * benchmark size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class DocumentParserBenchmark {
+
+    static final String HTML_PATH = "lesson-utils/documents/lesson_4_assignment_1.html";
+
+    /**
+     * Input size in chars: 1 KB, 1 MB and 100 MB.
+     */
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"STREAMING", "DOM"})
+    public DocumentParser.Mode mode;
+
+    private String html;
+    private DocumentParser parser;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        html = BenchmarkInputs.scaleHtml(BenchmarkInputs.read(HTML_PATH), size);
+        parser = new DocumentParser(mode);
+    }
+
+    @Benchmark
+    public DocumentParser.DocumentContent prepareDocumentContent() {
+        return parser.prepareDocumentContent(html);
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.workfusion.lab.utils.BaseLessonTest;
+import com.workfusion.lab.utils.DocumentParser;
+import com.workfusion.lab.utils.ElementIndex;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.Tag;
+
+/**
+ * Covered-tag lookups on the Tags of the lesson 4 HTML document scaled to the benchmark size: a linear scan of all
+ * tags, {@link ElementIndex} and the document's own findCovered. Each invocation looks up the covered tags of 1000
+ * tags spread over the document.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class ElementIndexBenchmark {
+
+    private static final int QUERIES = 1000;
+
+    /**
+     * Input size in chars: 1 MB and 10 MB.
+     */
+    @Param({"1048576", "10485760"})
+    public int size;
+
+    private IeDocument document;
+    private List<Tag> tags;
+    private List<Tag> queries;
+    private ElementIndex<Tag> index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String html = BenchmarkInputs.scaleHtml(BenchmarkInputs.read(DocumentParserBenchmark.HTML_PATH), size);
+        Path file = Files.createTempFile("benchmark", ".html");
+        try {
+            Files.write(file, html.getBytes(StandardCharsets.UTF_8));
+            document = new DocumentLoader().load(file.toString());
+        } finally {
+            Files.delete(file);
+        }
+        tags = new ArrayList<>(document.findAll(Tag.class));
+        queries = new ArrayList<>(QUERIES);
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(tags.get((int) ((long) i * tags.size() / QUERIES)));
+        }
+        index = ElementIndex.of(tags);
+    }
+
+    @Benchmark
+    public void linearScan(Blackhole blackhole) {
+        for (Tag query : queries) {
+            List<Tag> covered = new ArrayList<>();
+            for (Tag tag : tags) {
+                if (tag.getBegin() >= query.getBegin() && tag.getEnd() <= query.getEnd()) {
+                    covered.add(tag);
+                }
+            }
+            blackhole.consume(covered);
+        }
+    }
+
+    @Benchmark
+    public void elementIndex(Blackhole blackhole) {
+        for (Tag query : queries) {
+            blackhole.consume(index.findCovered(query));
+        }
+    }
+
+    @Benchmark
+    public void documentFindCovered(Blackhole blackhole) {
+        for (Tag query : queries) {
+            blackhole.consume(document.findCovered(Tag.class, query));
+        }
+    }
+
+    @Benchmark
+    public ElementIndex<Tag> buildIndex() {
+        return ElementIndex.of(tags);
+    }
+
+    /**
+     * Exposes the protected document loading helper.
+     */
+    private static class DocumentLoader extends BaseLessonTest {
+
+        IeDocument load(String documentPath) throws IOException {
+            return getDocument(documentPath, DocumentParser.Mode.STREAMING);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestNamedEntity;
+import com.workfusion.lab.utils.ElementSnapshot;
+import com.workfusion.nlp.uima.util.JsonSerializationUtil;
+
+/**
+ * Golden file loading benchmark: the JSON format read by {@link JsonSerializationUtil} against the binary
+ * {@link ElementSnapshot}, on named entities shaped like lesson_2_assignment_1_check.json.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class ElementSnapshotBenchmark {
+
+    /**
+     * Number of golden elements.
+     */
+    @Param({"1000", "100000"})
+    public int elements;
+
+    private byte[] json;
+    private byte[] snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        List<TestElement> golden = new ArrayList<>(elements);
+        StringBuilder builder = new StringBuilder("{\"@type\":\"java.util.ArrayList\",\"@items\":[");
+        for (int i = 0; i < elements; i++) {
+            TestNamedEntity entity = new TestNamedEntity();
+            entity.setType(i % 3 == 0 ? "email" : "keyword");
+            entity.setBegin(i * 12);
+            entity.setEnd(i * 12 + 8);
+            entity.setText("entity" + i % 100);
+            golden.add(entity);
+            builder.append(i == 0 ? "" : ",")
+                    .append("{\"@type\":\"com.workfusion.lab.model.TestNamedEntity\",\"type\":\"").append(entity.getType())
+                    .append("\",\"begin\":").append(entity.getBegin())
+                    .append(",\"end\":").append(entity.getEnd())
+                    .append(",\"text\":\"").append(entity.getText()).append("\"}");
+        }
+        json = builder.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ElementSnapshot.write(golden, out, true);
+        snapshot = out.toByteArray();
+    }
+
+    @Benchmark
+    public Object readJson() throws Exception {
+        return JsonSerializationUtil.readObject(new ByteArrayInputStream(json));
+    }
+
+    @Benchmark
+    public List<TestElement> readSnapshot() throws Exception {
+        return ElementSnapshot.read(new ByteArrayInputStream(snapshot));
+    }
+
+}
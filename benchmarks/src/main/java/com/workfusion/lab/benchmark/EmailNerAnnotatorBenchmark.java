@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.workfusion.lab.lesson2.annotator.Assignment2EmailNerAnnotator;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+
+/**
+ * {@link Assignment2EmailNerAnnotator} benchmark.
+ */
+public class EmailNerAnnotatorBenchmark extends AbstractAnnotatorBenchmark {
+
+    @Param({"SCANNER", "REGEX"})
+    public Assignment2EmailNerAnnotator.Mode mode;
+
+    @Override
+    protected String getInputPath() {
+        return "lesson-2/documents/lesson_2_assignment_2.txt";
+    }
+
+    @Override
+    protected Annotator createAnnotator() {
+        return new Assignment2EmailNerAnnotator(mode);
+    }
+
+}
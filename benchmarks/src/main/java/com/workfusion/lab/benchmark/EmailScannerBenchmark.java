@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.lesson2.annotator.EmailScanner;
+
+/**
+ * {@link EmailScanner} scaling benchmark on the input the email regex backtracks on: runs of word characters and dots
+ * on both sides of '@' with no top level domain. The scanner is linear, so the average time must grow with the size
+ * at a constant time per char; the regex is quadratic on this input and is not run at these sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Thread)
+public class EmailScannerBenchmark {
+
+    /**
+     * Length of the runs on each side of '@'.
+     */
+    @Param({"65536", "1048576", "4194304"})
+    public int size;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder builder = new StringBuilder(2 * size + 1);
+        for (int i = 0; i < size; i++) {
+            builder.append(i % 2 == 0 ? 'a' : '.');
+        }
+        builder.append('@');
+        for (int i = 0; i < size; i++) {
+            builder.append(i % 2 == 0 ? 'b' : '.');
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int scan() {
+        int[] matches = new int[1];
+        EmailScanner.scan(text, (begin, end) -> matches[0]++);
+        return matches[0];
+    }
+
+}
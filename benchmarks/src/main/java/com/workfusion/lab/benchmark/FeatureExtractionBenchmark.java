@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.lesson1.annotator.Assignment1TokenAnnotator;
+import com.workfusion.lab.model.TestTokenFeatures;
+import com.workfusion.lab.utils.BaseLessonTest;
+import com.workfusion.vds.nlp.uima.model.lifecycle.LifecycleEventExecutor;
+import com.workfusion.vds.sdk.api.nlp.fe.Feature;
+import com.workfusion.vds.sdk.api.nlp.fe.FeatureExtractor;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+/**
+ * BaseLessonTest.processFeatures against processFeaturesParallel on the tokens of the lesson 1 text scaled to the
+ * benchmark size, with a set of affix and shape feature extractors.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class FeatureExtractionBenchmark {
+
+    /**
+     * Input size in chars: 1 KB and 1 MB.
+     */
+    @Param({"1024", "1048576"})
+    public int size;
+
+    @Param({"2", "4", "8"})
+    public int parallelism;
+
+    private IeDocument document;
+    private final FeatureProcessor processor = new FeatureProcessor();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String text = BenchmarkInputs.scale(BenchmarkInputs.read("lesson-1/documents/lesson_1_assignment_1.txt"), size);
+        document = DocumentFactory.createIeDocument(text, text);
+        Assignment1TokenAnnotator annotator = new Assignment1TokenAnnotator();
+        LifecycleEventExecutor.getInstance().executeInit(annotator, Collections.emptyMap());
+        annotator.process(document);
+        LifecycleEventExecutor.getInstance().executeDestroy(annotator, Collections.emptyMap());
+    }
+
+    @Benchmark
+    public List<TestTokenFeatures> sequential() throws Exception {
+        List<FeatureExtractor> fes = new ArrayList<>();
+        for (Supplier<? extends FeatureExtractor> factory : FeatureProcessor.FACTORIES) {
+            fes.add(factory.get());
+        }
+        return processor.sequential(document, fes);
+    }
+
+    @Benchmark
+    public List<TestTokenFeatures> parallel() {
+        return processor.parallel(document, FeatureProcessor.FACTORIES, parallelism);
+    }
+
+    /**
+     * Exposes the protected feature extraction helpers.
+     */
+    private static class FeatureProcessor extends BaseLessonTest {
+
+        static final List<Supplier<? extends FeatureExtractor>> FACTORIES = Arrays.asList(
+                () -> new AffixFeatureExtractor(true),
+                () -> new AffixFeatureExtractor(false),
+                ShapeFeatureExtractor::new);
+
+        List<TestTokenFeatures> sequential(Document document, List<FeatureExtractor> fes) throws Exception {
+            return processFeatures(document, fes);
+        }
+
+        List<TestTokenFeatures> parallel(Document document, List<Supplier<? extends FeatureExtractor>> factories,
+                int threads) {
+            return processFeaturesParallel(document, factories, threads);
+        }
+    }
+
+    /**
+     * Prefixes or suffixes of 1 to 4 chars.
+     */
+    private static class AffixFeatureExtractor implements FeatureExtractor<Token> {
+
+        private final boolean prefix;
+
+        AffixFeatureExtractor(boolean prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Collection<Feature> extract(Document document, Token token) {
+            String text = token.getText();
+            List<Feature> features = new ArrayList<>(4);
+            for (int length = 1; length <= 4 && length <= text.length(); length++) {
+                features.add(prefix
+                        ? new Feature("prefix_" + text.substring(0, length).toLowerCase(), 1.0)
+                        : new Feature("suffix_" + text.substring(text.length() - length).toLowerCase(), 1.0));
+            }
+            return features;
+        }
+    }
+
+    /**
+     * Word shape: upper case letters to X, lower case to x, digits to d.
+     */
+    private static class ShapeFeatureExtractor implements FeatureExtractor<Token> {
+
+        @Override
+        public Collection<Feature> extract(Document document, Token token) {
+            String text = token.getText();
+            StringBuilder shape = new StringBuilder(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                shape.append(Character.isUpperCase(c) ? 'X' : Character.isLowerCase(c) ? 'x' : Character.isDigit(c) ? 'd' : c);
+            }
+            return Collections.singletonList(new Feature("shape_" + shape, 1.0));
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.workfusion.lab.lesson1.annotator.Assignment1TokenAnnotator;
+import com.workfusion.lab.lesson1.annotator.Assignment2SentenceAnnotator;
+import com.workfusion.lab.lesson2.annotator.Assignment1KeywordNerAnnotator;
+import com.workfusion.lab.lesson2.annotator.Assignment2EmailNerAnnotator;
+import com.workfusion.lab.lesson2.annotator.FusedAnnotator;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+
+/**
+ * {@link FusedAnnotator} benchmark against the token, sentence, keyword and email annotators run one after another.
+ */
+public class FusedAnnotatorBenchmark extends AbstractAnnotatorBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fused;
+
+    @Override
+    protected String getInputPath() {
+        return "lesson-2/documents/lesson_2_assignment_2.txt";
+    }
+
+    @Override
+    protected Annotator createAnnotator() {
+        return fused ? new FusedAnnotator() : new ChainedAnnotator(Arrays.asList(
+                new Assignment1TokenAnnotator(),
+                new Assignment2SentenceAnnotator(),
+                new Assignment1KeywordNerAnnotator(),
+                new Assignment2EmailNerAnnotator()));
+    }
+
+    private static final class ChainedAnnotator implements Annotator<Document> {
+
+        private final List<Annotator<Document>> annotators;
+
+        ChainedAnnotator(List<Annotator<Document>> annotators) {
+            this.annotators = annotators;
+        }
+
+        @Override
+        public void process(Document document) {
+            for (Annotator<Document> annotator : annotators) {
+                annotator.process(document);
+            }
+        }
+
+    }
+
+}
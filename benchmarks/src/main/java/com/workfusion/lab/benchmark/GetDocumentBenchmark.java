@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.workfusion.lab.utils.BaseLessonTest;
+import com.workfusion.lab.utils.DocumentParser;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+
+/**
+ * BaseLessonTest.getDocument benchmark: file reading, newline normalization, HTML parsing and ML-SDK document
+ * creation for the lesson 4 HTML document scaled to the benchmark size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Thread)
+public class GetDocumentBenchmark {
+
+    /**
+     * Input size in chars: 1 KB, 1 MB and 100 MB.
+     */
+    @Param({"1024", "1048576", "104857600"})
+    public int size;
+
+    @Param({"STREAMING", "DOM"})
+    public DocumentParser.Mode mode;
+
+    private Path file;
+    private final DocumentLoader loader = new DocumentLoader();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String html = BenchmarkInputs.scaleHtml(BenchmarkInputs.read(DocumentParserBenchmark.HTML_PATH), size);
+        file = Files.createTempFile("benchmark", ".html");
+        Files.write(file, html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public IeDocument getDocument() throws IOException {
+        return loader.load(file.toString(), mode);
+    }
+
+    /**
+     * Exposes the protected document loading helper.
+     */
+    private static class DocumentLoader extends BaseLessonTest {
+
+        IeDocument load(String documentPath, DocumentParser.Mode parserMode) throws IOException {
+            return getDocument(documentPath, parserMode);
+        }
+    }
+
+}
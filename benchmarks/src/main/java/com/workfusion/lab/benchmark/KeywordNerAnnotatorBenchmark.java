@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import com.workfusion.lab.lesson2.annotator.Assignment1KeywordNerAnnotator;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+
+/**
+ * {@link Assignment1KeywordNerAnnotator} benchmark.
+ */
+public class KeywordNerAnnotatorBenchmark extends AbstractAnnotatorBenchmark {
+
+    @Override
+    protected String getInputPath() {
+        return "lesson-2/documents/lesson_2_assignment_1.txt";
+    }
+
+    @Override
+    protected Annotator createAnnotator() {
+        return new Assignment1KeywordNerAnnotator();
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.workfusion.lab.lesson1.annotator.Assignment2SentenceAnnotator;
+import com.workfusion.lab.utils.SentenceSegmenter;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+
+/**
+ * {@link Assignment2SentenceAnnotator} benchmark on the concatenated lesson 3 text, {@link SentenceSegmenter} against
+ * the regex split.
+ */
+public class SentenceAnnotatorBenchmark extends AbstractAnnotatorBenchmark {
+
+    @Param({"SCANNER", "REGEX"})
+    public Assignment2SentenceAnnotator.Mode mode;
+
+    @Override
+    protected String getInputPath() {
+        return "lesson-3/lesson_3_assignment_1.txt";
+    }
+
+    @Override
+    protected Annotator createAnnotator() {
+        return new Assignment2SentenceAnnotator(mode);
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.workfusion.lab.utils.DocumentParser;
+
+/**
+ * Retained heap harness for {@link DocumentParser.TagStore}: keeps parsed copies of the lesson 4 HTML document alive
+ * and reports the heap they retain per document, against the same tags held as objects with an eager text copy and an
+ * attribute map each, the way DocumentParser kept them before the store. Heap sizes are measured after forced GCs, so
+ * run it on an otherwise idle JVM:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.workfusion.lab.benchmark.TagStoreFootprint [copies]
+ * </pre>
+ */
+public class TagStoreFootprint {
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String html = BenchmarkInputs.read(DocumentParserBenchmark.HTML_PATH);
+        DocumentParser parser = new DocumentParser();
+
+        List<Object> retained = new ArrayList<>();
+        long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            retained.add(parser.prepareDocumentContent(html));
+        }
+        long storeBytes = (usedHeap() - before) / copies;
+
+        DocumentParser.DocumentContent content = (DocumentParser.DocumentContent) retained.get(0);
+        retained.clear();
+        before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            List<Object[]> tags = new ArrayList<>();
+            for (DocumentParser.Tag tag : content.getTags()) {
+                tags.add(new Object[] {tag.getName(), tag.getBegin(), tag.getEnd(), new String(tag.getText()), new HashMap<>(tag.getAttr())});
+            }
+            retained.add(new Object[] {new String(content.getText()), tags});
+        }
+        long objectBytes = (usedHeap() - before) / copies;
+
+        System.out.println("Retained heap per document (" + content.getTags().size() + " tags): tag store " + storeBytes
+                + " bytes, tag objects " + objectBytes + " bytes");
+        if (retained.size() != copies) {
+            throw new IllegalStateException("Copies were not retained");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
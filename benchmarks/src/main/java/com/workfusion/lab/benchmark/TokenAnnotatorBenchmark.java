@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+import com.workfusion.lab.lesson1.annotator.Assignment1TokenAnnotator;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+
+/**
+ * {@link Assignment1TokenAnnotator} benchmark.
+ */
+public class TokenAnnotatorBenchmark extends AbstractAnnotatorBenchmark {
+
+    @Param({"SCANNER", "REGEX"})
+    public Assignment1TokenAnnotator.Mode mode;
+
+    @Override
+    protected String getInputPath() {
+        return "lesson-1/documents/lesson_1_assignment_1.txt";
+    }
+
+    @Override
+    protected Annotator createAnnotator() {
+        return new Assignment1TokenAnnotator(mode);
+    }
+
+}
@@ -3,6 +3,10 @@
  */
 package com.workfusion.lab.lesson1.annotator;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.workfusion.lab.utils.WordChars;
 import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
 import com.workfusion.vds.sdk.api.nlp.model.Token;
@@ -17,11 +21,77 @@ public class Assignment1TokenAnnotator implements Annotator<Document> {
      */
     private static final String TOKEN_REGEXP = "\\w+";
 
+    /**
+     * Compiled {@link #TOKEN_REGEXP} used by {@link Mode#REGEX}.
+     */
+    private static final Pattern TOKEN_PATTERN = Pattern.compile(TOKEN_REGEXP);
+
+    /**
+     * Tokenization strategy.
+     */
+    public enum Mode {
+        /**
+         * Reference implementation: matches {@link #TOKEN_REGEXP} with a {@link Matcher}.
+         */
+        REGEX,
+        /**
+         * Single pass character-class scanner producing the same offsets as {@link #REGEX}.
+         */
+        SCANNER
+    }
+
+    private final Mode mode;
+
+    public Assignment1TokenAnnotator() {
+        this(Mode.SCANNER);
+    }
+
+    public Assignment1TokenAnnotator(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     @Override
     public void process(Document document) {
+        String text = document.getText();
+        if (mode == Mode.REGEX) {
+            Matcher matcher = TOKEN_PATTERN.matcher(text);
+            while (matcher.find()) {
+                addToken(document, matcher.start(), matcher.end());
+            }
+        } else {
+            scan(document, text);
+        }
+    }
 
-        //TODO: PUT YOUR CODE HERE
+    /**
+     * Walks the text once and adds a {@link Token} for every maximal run of word characters.
+     */
+    private void scan(Document document, CharSequence text) {
+        int length = text.length();
+        int begin = -1;
+        for (int i = 0; i < length; i++) {
+            if (WordChars.isWordChar(text.charAt(i))) {
+                if (begin < 0) {
+                    begin = i;
+                }
+            } else if (begin >= 0) {
+                addToken(document, begin, i);
+                begin = -1;
+            }
+        }
+        if (begin >= 0) {
+            addToken(document, begin, length);
+        }
+    }
 
+    private void addToken(Document document, int begin, int end) {
+        document.add(Token.descriptor()
+                .setBegin(begin)
+                .setEnd(end));
     }
 
 }
@@ -3,6 +3,10 @@
  */
 package com.workfusion.lab.lesson1.annotator;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.workfusion.lab.utils.SentenceSegmenter;
 import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
 import com.workfusion.vds.sdk.api.nlp.model.Sentence;
@@ -17,11 +21,69 @@ public class Assignment2SentenceAnnotator implements Annotator<Document> {
      */
     private static final String SENTENCE_REGEXP = "[.!?]";
 
+    /**
+     * Compiled {@link #SENTENCE_REGEXP} used by {@link Mode#REGEX}.
+     */
+    private static final Pattern SENTENCE_PATTERN = Pattern.compile(SENTENCE_REGEXP);
+
+    /**
+     * Sentence splitting strategy.
+     */
+    public enum Mode {
+        /**
+         * Compatibility mode: splits at every match of {@link #SENTENCE_REGEXP}.
+         */
+        REGEX,
+        /**
+         * Single pass {@link SentenceSegmenter} that does not split at abbreviations, initials and decimal points.
+         */
+        SCANNER
+    }
+
+    private final Mode mode;
+    private final SentenceSegmenter segmenter;
+
+    public Assignment2SentenceAnnotator() {
+        this(Mode.SCANNER);
+    }
+
+    public Assignment2SentenceAnnotator(Mode mode) {
+        this(mode, SentenceSegmenter.getDefault());
+    }
+
+    public Assignment2SentenceAnnotator(Mode mode, SentenceSegmenter segmenter) {
+        this.mode = mode;
+        this.segmenter = segmenter;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     @Override
     public void process(Document document) {
+        String text = document.getText();
+        if (mode == Mode.REGEX) {
+            Matcher matcher = SENTENCE_PATTERN.matcher(text);
+            int begin = 0;
+            while (matcher.find()) {
+                if (matcher.start() > begin) {
+                    addSentence(document, begin, matcher.start());
+                }
+                begin = matcher.end();
+            }
+            if (text.length() > begin) {
+                addSentence(document, begin, text.length());
+            }
+        } else {
+            segmenter.segment(text, (begin, end) -> addSentence(document, begin, end));
+        }
+    }
 
-        //TODO: PUT YOUR CODE HERE
-
+    private void addSentence(Document document, int begin, int end) {
+        document.add(Sentence.descriptor()
+                .setBegin(begin)
+                .setEnd(end));
     }
 
 }
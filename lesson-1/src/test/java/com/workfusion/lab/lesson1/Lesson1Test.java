@@ -3,19 +3,27 @@
  */
 package com.workfusion.lab.lesson1;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
 import com.workfusion.lab.lesson1.annotator.Assignment1TokenAnnotator;
 import com.workfusion.lab.lesson1.annotator.Assignment2SentenceAnnotator;
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestElementFactory;
+import com.workfusion.lab.utils.AnnotatorPipeline;
 import com.workfusion.lab.utils.BaseLessonTest;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
 import com.workfusion.vds.sdk.api.nlp.model.Element;
 import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
 import com.workfusion.vds.sdk.api.nlp.model.Sentence;
 import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class Lesson1Test extends BaseLessonTest {
 
@@ -51,6 +59,60 @@ public class Lesson1Test extends BaseLessonTest {
         checkElements(tokens, "lesson_1_assignment_1_check.json");
     }
 
+    /**
+     * Checks that the {@link Assignment1TokenAnnotator.Mode#SCANNER} tokenizer provides the same Tokens as the
+     * {@link Assignment1TokenAnnotator.Mode#REGEX} reference implementation.
+     */
+    @Test
+    public void assignment1ScannerMatchesRegex() throws Exception {
+        for (String dir : new String[] {"documents", "../lesson-3"}) {
+            File[] files = new File(dir).listFiles(File::isFile);
+            assertThat(files).isNotEmpty();
+            for (File file : files) {
+                log("Comparing tokenizer modes on {0}", file.getPath());
+                assertThat(tokenize(file, Assignment1TokenAnnotator.Mode.SCANNER))
+                        .containsExactlyElementsOf(tokenize(file, Assignment1TokenAnnotator.Mode.REGEX));
+            }
+        }
+    }
+
+    private List<TestElement> tokenize(File file, Assignment1TokenAnnotator.Mode mode) throws Exception {
+        IeDocument document = getDocument(file.getPath());
+        processAnnotators(document, new Assignment1TokenAnnotator(mode));
+        return document.findAll(Token.class).stream()
+                .map(TestElementFactory::createElement)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that documents processed concurrently by {@link AnnotatorPipeline} get the same Tokens as the ones
+     * processed sequentially.
+     */
+    @Test
+    public void assignment1Pipeline() throws Exception {
+        IeDocument expected = getDocument("documents/lesson_1_assignment_1.txt");
+        processAnnotators(expected, new Assignment1TokenAnnotator());
+        List<TestElement> expectedTokens = expected.findAll(Token.class).stream()
+                .map(TestElementFactory::createElement)
+                .collect(Collectors.toList());
+
+        List<IeDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            documents.add(getDocument("documents/lesson_1_assignment_1.txt"));
+        }
+        try (AnnotatorPipeline pipeline = new AnnotatorPipeline.Builder()
+                .addPerThread(() -> new Assignment1TokenAnnotator(Assignment1TokenAnnotator.Mode.SCANNER))
+                .parallelism(4)
+                .build()) {
+            AnnotatorPipeline.Report report = pipeline.process(documents);
+            assertThat(report.getDocuments()).isEqualTo(documents.size());
+        }
+        for (IeDocument document : documents) {
+            assertThat(document.findAll(Token.class).stream().map(TestElementFactory::createElement).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(expectedTokens);
+        }
+    }
+
     /**
      * <p><b>Assignment 2</b></p>
      * <p>
@@ -78,4 +140,42 @@ public class Lesson1Test extends BaseLessonTest {
         checkElements(sentences, "lesson_1_assignment_2_check.json");
     }
 
-}
\ No newline at end of file
+    /**
+     * Checks that the {@link Assignment2SentenceAnnotator.Mode#SCANNER} segmenter splits like the
+     * {@link Assignment2SentenceAnnotator.Mode#REGEX} compatibility mode except at abbreviations, initials and
+     * periods inside words.
+     */
+    @Test
+    public void assignment2ScannerKeepsAbbreviations() throws Exception {
+        String text = "Dr. Smith paid 3.50 to J. Doe, e.g. for lunch. Then he left! Mail john.doe@mail.com now?";
+
+        assertThat(split(text, Assignment2SentenceAnnotator.Mode.SCANNER)).containsExactly(
+                "Dr. Smith paid 3.50 to J. Doe, e.g. for lunch",
+                " Then he left",
+                " Mail john.doe@mail.com now");
+        assertThat(split(text, Assignment2SentenceAnnotator.Mode.REGEX)).hasSize(10);
+
+        // Abbreviations that are also words only continue the sentence before a number or a lower case word
+        String words = "He said no. She left. See No. 5 and Smith et al. for details. Trade est. 1990. "
+                + "It was Mar. 3 at Acme Co. in town.";
+        assertThat(split(words, Assignment2SentenceAnnotator.Mode.SCANNER)).containsExactly(
+                "He said no",
+                " She left",
+                " See No. 5 and Smith et al. for details",
+                " Trade est. 1990",
+                " It was Mar. 3 at Acme Co. in town");
+
+        String plain = "Alice was tired. Down, down, down! Would the fall never come to an end?";
+        assertThat(split(plain, Assignment2SentenceAnnotator.Mode.SCANNER))
+                .containsExactlyElementsOf(split(plain, Assignment2SentenceAnnotator.Mode.REGEX));
+    }
+
+    private List<String> split(String text, Assignment2SentenceAnnotator.Mode mode) {
+        IeDocument document = DocumentFactory.createIeDocument(text, text);
+        processAnnotators(document, new Assignment2SentenceAnnotator(mode));
+        return document.findAll(Sentence.class).stream()
+                .map(Sentence::getText)
+                .collect(Collectors.toList());
+    }
+
+}
@@ -3,9 +3,16 @@
  */
 package com.workfusion.lab.lesson2.annotator;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
+import com.workfusion.lab.lesson2.gazetteer.AhoCorasickMatcher;
+import com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler;
+import com.workfusion.lab.lesson2.gazetteer.MappedKeywordTrie;
+import com.workfusion.lab.utils.WordChars;
 import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
 import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
@@ -18,7 +25,7 @@ public class Assignment1KeywordNerAnnotator implements Annotator<Document> {
     /**
      * Keywords list to use.
      */
-    private static final List<String> STATES = Arrays.asList(
+    static final List<String> STATES = Arrays.asList(
             "Missouri",
             "Nevada",
             "Alaska",
@@ -31,13 +38,57 @@ public class Assignment1KeywordNerAnnotator implements Annotator<Document> {
     /**
      * Type for {@link NamedEntity} to use.
      */
-    private final static String NER_TYPE = "state";
+    final static String NER_TYPE = "state";
+
+    /**
+     * Automaton compiled from the keywords, null if a gazetteer is used.
+     */
+    private final AhoCorasickMatcher matcher;
+
+    /**
+     * Memory-mapped gazetteer, null if keywords are used.
+     */
+    private final MappedKeywordTrie gazetteer;
+
+    public Assignment1KeywordNerAnnotator() {
+        this(STATES);
+    }
+
+    /**
+     * Creates the annotator for custom keywords. Keywords may contain several words, e.g. "West Virginia".
+     */
+    public Assignment1KeywordNerAnnotator(Collection<String> keywords) {
+        this.matcher = AhoCorasickMatcher.compile(keywords);
+        this.gazetteer = null;
+    }
+
+    /**
+     * Creates the annotator for a binary gazetteer compiled by {@link KeywordTrieCompiler}. The gazetteer is
+     * memory-mapped and queried off-heap, the {@link NamedEntity} type is taken from the matched entry.
+     */
+    public Assignment1KeywordNerAnnotator(Path gazetteer) throws IOException {
+        this.matcher = null;
+        this.gazetteer = MappedKeywordTrie.open(gazetteer);
+    }
 
     @Override
     public void process(Document document) {
+        String text = document.getText();
+        if (gazetteer != null) {
+            gazetteer.match(text, (begin, end, typeIndex) -> addNamedEntity(document, text, begin, end, gazetteer.getType(typeIndex)));
+        } else {
+            matcher.match(text, (begin, end, keywordIndex) -> addNamedEntity(document, text, begin, end, NER_TYPE));
+        }
+    }
 
-        //TODO: PUT YOUR CODE HERE
-
+    private void addNamedEntity(Document document, String text, int begin, int end, String type) {
+        // Only whole words are accepted, the same way Tokens are matched by \w+
+        if (WordChars.isWordBoundary(text, begin) && WordChars.isWordBoundary(text, end)) {
+            document.add(NamedEntity.descriptor()
+                    .setBegin(begin)
+                    .setEnd(end)
+                    .setType(type));
+        }
     }
 
-}
\ No newline at end of file
+}
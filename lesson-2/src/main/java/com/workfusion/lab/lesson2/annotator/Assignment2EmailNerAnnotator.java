@@ -3,6 +3,9 @@
  */
 package com.workfusion.lab.lesson2.annotator;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
 import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
@@ -17,16 +20,62 @@ public class Assignment2EmailNerAnnotator implements Annotator<Document> {
      */
     private static final String EMAIL_REGEXP = "\\b[\\w.%-]+@[-.\\w]+\\.[A-Za-z]{2,4}\\b";
 
+    /**
+     * Compiled {@link #EMAIL_REGEXP} used by {@link Mode#REGEX}.
+     */
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEXP);
+
     /**
      * Type for {@link NamedEntity} to use.
      */
-    private static final String NER_TYPE = "email";
+    static final String NER_TYPE = "email";
+
+    /**
+     * Email recognition strategy.
+     */
+    public enum Mode {
+        /**
+         * Reference implementation: matches {@link #EMAIL_REGEXP} with a {@link Matcher}.
+         */
+        REGEX,
+        /**
+         * Linear time {@link EmailScanner} producing the same spans as {@link #REGEX}.
+         */
+        SCANNER
+    }
+
+    private final Mode mode;
+
+    public Assignment2EmailNerAnnotator() {
+        this(Mode.SCANNER);
+    }
+
+    public Assignment2EmailNerAnnotator(Mode mode) {
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
 
     @Override
     public void process(Document document) {
+        String text = document.getText();
+        if (mode == Mode.REGEX) {
+            Matcher matcher = EMAIL_PATTERN.matcher(text);
+            while (matcher.find()) {
+                addNamedEntity(document, matcher.start(), matcher.end());
+            }
+        } else {
+            EmailScanner.scan(text, (begin, end) -> addNamedEntity(document, begin, end));
+        }
+    }
 
-        //TODO: PUT YOUR CODE HERE
-
+    private void addNamedEntity(Document document, int begin, int end) {
+        document.add(NamedEntity.descriptor()
+                .setBegin(begin)
+                .setEnd(end)
+                .setType(NER_TYPE));
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.lesson2.annotator;
+
+import com.workfusion.lab.utils.WordChars;
+
+/**
+ * Deterministic email scanner equivalent to {@code \b[\w.%-]+@[-.\w]+\.[A-Za-z]{2,4}\b} for ASCII word characters.
+ * <p>
+ * The scanner anchors on '@': the local part is the run of {@code [\w.%-]} characters ending right before it,
+ * the domain is the run of {@code [-.\w]} characters following it. The domain is searched backwards for the
+ * rightmost {@code .TLD} the regex would settle on, so every character is inspected a bounded number of times
+ * and the scan stays linear on inputs where the regex backtracks.
+ */
+public final class EmailScanner {
+
+    /**
+     * Callback receiving the matches.
+     */
+    public interface MatchHandler {
+
+        /**
+         * Called for each email found, in text order.
+         */
+        void onMatch(int begin, int end);
+    }
+
+    private EmailScanner() {
+    }
+
+    /**
+     * Reports the emails in the text, the same non-overlapping spans {@code Matcher.find()} would return.
+     */
+    public static void scan(CharSequence text, MatchHandler handler) {
+        int length = text.length();
+        int pos = 0;
+        while (pos < length) {
+            if (!isLocalChar(text.charAt(pos))) {
+                pos++;
+                continue;
+            }
+            int at = pos;
+            while (at < length && isLocalChar(text.charAt(at))) {
+                at++;
+            }
+            if (at == length || text.charAt(at) != '@') {
+                pos = at;
+                continue;
+            }
+            int end = matchAt(text, pos, at, handler);
+            pos = end < 0 ? at + 1 : end;
+        }
+    }
+
+    /**
+     * Checks for an email around the '@' at the provided offset, the local part being searched in [from, at). This
+     * is the step {@link #scan(CharSequence, MatchHandler)} takes at every '@' preceded by a non-empty run of
+     * {@link #isLocalChar(char)} characters starting at {@code from}; the next run starts at the returned end.
+     *
+     * @return the end of the reported email or -1 if there is none
+     */
+    static int matchAt(CharSequence text, int from, int at, MatchHandler handler) {
+        int begin = firstBoundary(text, from, at);
+        int end = begin < 0 ? -1 : domainEnd(text, at);
+        if (end >= 0) {
+            handler.onMatch(begin, end);
+        }
+        return end;
+    }
+
+    /**
+     * Returns the leftmost word boundary in [from, to) or -1.
+     */
+    private static int firstBoundary(CharSequence text, int from, int to) {
+        boolean previous = from > 0 && WordChars.isWordChar(text.charAt(from - 1));
+        for (int i = from; i < to; i++) {
+            boolean current = WordChars.isWordChar(text.charAt(i));
+            if (previous != current) {
+                return i;
+            }
+            previous = current;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the end of the email whose '@' is at the provided offset or -1 if the domain does not match.
+     */
+    private static int domainEnd(CharSequence text, int at) {
+        int length = text.length();
+        int runEnd = at + 1;
+        while (runEnd < length && isDomainChar(text.charAt(runEnd))) {
+            runEnd++;
+        }
+        // The regex takes the longest domain first, then the longest TLD
+        for (int dot = runEnd - 1; dot >= at + 2; dot--) {
+            if (text.charAt(dot) != '.') {
+                continue;
+            }
+            int letters = 0;
+            while (letters < 4 && dot + 1 + letters < length && isAsciiLetter(text.charAt(dot + 1 + letters))) {
+                letters++;
+            }
+            for (int tld = letters; tld >= 2; tld--) {
+                int end = dot + 1 + tld;
+                if (end == length || !WordChars.isWordChar(text.charAt(end))) {
+                    return end;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static boolean isLocalChar(char c) {
+        return WordChars.isWordChar(c) || c == '.' || c == '%' || c == '-';
+    }
+
+    private static boolean isDomainChar(char c) {
+        return WordChars.isWordChar(c) || c == '.' || c == '-';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.lesson2.annotator;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.workfusion.lab.lesson2.gazetteer.AhoCorasickMatcher;
+import com.workfusion.lab.utils.SentenceSegmenter;
+import com.workfusion.lab.utils.WordChars;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
+import com.workfusion.vds.sdk.api.nlp.model.Sentence;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+
+/**
+ * Single pass replacement for running the lesson 1 {@code Assignment1TokenAnnotator} and
+ * {@code Assignment2SentenceAnnotator}, {@link Assignment1KeywordNerAnnotator} and {@link Assignment2EmailNerAnnotator}
+ * in this order, all in their default {@code SCANNER} modes.
+ * <p>
+ * Every character is read once and fed to the four recognizers together: the {@code \w+} token run, the
+ * {@link SentenceSegmenter} boundary check, an {@link AhoCorasickMatcher} step and the {@link EmailScanner} run
+ * tracking. The recognizers only look back or ahead around a candidate ({@code .}, {@code @}, a keyword end), so the
+ * text is not re-scanned per element type. The spans are collected in primitive buffers and added after the pass,
+ * tokens first, then sentences, keywords and emails, so the document gets the same elements in the same order as
+ * with the individual annotators.
+ */
+public class FusedAnnotator implements Annotator<Document> {
+
+    private final AhoCorasickMatcher matcher;
+    private final SentenceSegmenter segmenter;
+
+    /**
+     * Creates the annotator for the states of {@link Assignment1KeywordNerAnnotator}.
+     */
+    public FusedAnnotator() {
+        this(Assignment1KeywordNerAnnotator.STATES);
+    }
+
+    /**
+     * Creates the annotator for custom keywords, the same way as {@link Assignment1KeywordNerAnnotator#Assignment1KeywordNerAnnotator(Collection)}.
+     */
+    public FusedAnnotator(Collection<String> keywords) {
+        this(keywords, SentenceSegmenter.getDefault());
+    }
+
+    public FusedAnnotator(Collection<String> keywords, SentenceSegmenter segmenter) {
+        this.matcher = AhoCorasickMatcher.compile(keywords);
+        this.segmenter = segmenter;
+    }
+
+    @Override
+    public void process(Document document) {
+        String text = document.getText();
+        int length = text.length();
+        // A token per ~6 chars and an entity per ~1000 chars is typical for the lesson documents
+        SpanBuffer tokens = new SpanBuffer(length / 6);
+        SpanBuffer sentences = new SpanBuffer(length / 64);
+        SpanBuffer keywords = new SpanBuffer(length / 1024);
+        SpanBuffer emails = new SpanBuffer(length / 1024);
+
+        AhoCorasickMatcher.MatchHandler keywordHandler = (begin, end, keywordIndex) -> {
+            // Only whole words are accepted, the same way Tokens are matched by \w+
+            if (WordChars.isWordBoundary(text, begin) && WordChars.isWordBoundary(text, end)) {
+                keywords.add(begin, end);
+            }
+        };
+        EmailScanner.MatchHandler emailHandler = emails::add;
+
+        int tokenBegin = -1;
+        int sentenceBegin = 0;
+        int state = AhoCorasickMatcher.INITIAL_STATE;
+        // Start of the current run of email local part characters, and the offset the next email may start at
+        int localBegin = -1;
+        int emailResume = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (WordChars.isWordChar(c)) {
+                if (tokenBegin < 0) {
+                    tokenBegin = i;
+                }
+            } else if (tokenBegin >= 0) {
+                tokens.add(tokenBegin, i);
+                tokenBegin = -1;
+            }
+
+            if ((c == '.' || c == '!' || c == '?') && segmenter.isBoundary(text, i)) {
+                if (i > sentenceBegin) {
+                    sentences.add(sentenceBegin, i);
+                }
+                sentenceBegin = i + 1;
+            }
+
+            state = matcher.step(state, c, i, keywordHandler);
+
+            if (c == '@') {
+                int from = Math.max(localBegin, emailResume);
+                if (localBegin >= 0 && from < i) {
+                    int end = EmailScanner.matchAt(text, from, i, emailHandler);
+                    emailResume = end < 0 ? i + 1 : end;
+                }
+                localBegin = -1;
+            } else if (EmailScanner.isLocalChar(c)) {
+                if (localBegin < 0) {
+                    localBegin = i;
+                }
+            } else {
+                localBegin = -1;
+            }
+        }
+        if (tokenBegin >= 0) {
+            tokens.add(tokenBegin, length);
+        }
+        if (length > sentenceBegin) {
+            sentences.add(sentenceBegin, length);
+        }
+
+        for (int i = 0; i < tokens.size; i += 2) {
+            document.add(Token.descriptor()
+                    .setBegin(tokens.spans[i])
+                    .setEnd(tokens.spans[i + 1]));
+        }
+        for (int i = 0; i < sentences.size; i += 2) {
+            document.add(Sentence.descriptor()
+                    .setBegin(sentences.spans[i])
+                    .setEnd(sentences.spans[i + 1]));
+        }
+        addNamedEntities(document, keywords, Assignment1KeywordNerAnnotator.NER_TYPE);
+        addNamedEntities(document, emails, Assignment2EmailNerAnnotator.NER_TYPE);
+    }
+
+    private static void addNamedEntities(Document document, SpanBuffer spans, String type) {
+        for (int i = 0; i < spans.size; i += 2) {
+            document.add(NamedEntity.descriptor()
+                    .setBegin(spans.spans[i])
+                    .setEnd(spans.spans[i + 1])
+                    .setType(type));
+        }
+    }
+
+    /**
+     * Growable list of begin and end offsets.
+     */
+    private static final class SpanBuffer {
+
+        private int[] spans;
+        private int size;
+
+        SpanBuffer(int expectedSpans) {
+            this.spans = new int[Math.max(16, 2 * expectedSpans)];
+        }
+
+        void add(int begin, int end) {
+            if (size + 2 > spans.length) {
+                spans = Arrays.copyOf(spans, spans.length * 2);
+            }
+            spans[size++] = begin;
+            spans[size++] = end;
+        }
+
+    }
+
+}
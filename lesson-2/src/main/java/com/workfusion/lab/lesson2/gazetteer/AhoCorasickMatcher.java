@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.lesson2.gazetteer;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compiled Aho-Corasick automaton that finds every occurrence of every keyword in one pass over a text.
+ * <p>
+ * The automaton is stored in flat primitive arrays and the goto function in an open-addressing
+ * {@code (state, char) -> state} hash table, so matching does not allocate and runs in time proportional
+ * to the text length plus the number of reported matches, regardless of the dictionary size.
+ * Instances are immutable and can be shared between threads.
+ */
+public final class AhoCorasickMatcher {
+
+    /**
+     * Callback receiving the matches.
+     */
+    public interface MatchHandler {
+
+        /**
+         * Called for each occurrence of a keyword.
+         *
+         * @param begin        the match begin offset in the text
+         * @param end          the match end offset in the text (exclusive)
+         * @param keywordIndex the index of the matched keyword as it was provided to {@link #compile(Collection)}
+         */
+        void onMatch(int begin, int end, int keywordIndex);
+    }
+
+    /**
+     * State to start {@link #step(int, char, int, MatchHandler)} with.
+     */
+    public static final int INITIAL_STATE = 0;
+
+    private static final int ROOT = INITIAL_STATE;
+    private static final long EMPTY = -1L;
+
+    private final String[] keywords;
+    private final int stateCount;
+
+    // goto function
+    private final long[] keys;
+    private final int[] targets;
+    private final int mask;
+
+    private final int[] fail;
+    // keyword index ending in the state, or -1
+    private final int[] output;
+    // nearest state on the fail chain having an output, or -1
+    private final int[] dictLink;
+
+    private AhoCorasickMatcher(String[] keywords, Builder builder) {
+        this.keywords = keywords;
+        this.stateCount = builder.stateCount;
+        this.keys = builder.keys;
+        this.targets = builder.targets;
+        this.mask = builder.keys.length - 1;
+        this.fail = new int[stateCount];
+        this.output = Arrays.copyOf(builder.output, stateCount);
+        this.dictLink = new int[stateCount];
+        link(builder);
+    }
+
+    /**
+     * Compiles the automaton for the provided keywords. Empty keywords are ignored, duplicates are reported once
+     * with the index of their first occurrence.
+     */
+    public static AhoCorasickMatcher compile(Collection<String> keywords) {
+        String[] array = keywords.toArray(new String[0]);
+        Builder builder = new Builder(array);
+        return new AhoCorasickMatcher(array, builder);
+    }
+
+    /**
+     * Returns the keyword for the index reported to {@link MatchHandler}.
+     */
+    public String getKeyword(int keywordIndex) {
+        return keywords[keywordIndex];
+    }
+
+    /**
+     * Returns the number of keywords the automaton has been compiled for.
+     */
+    public int size() {
+        return keywords.length;
+    }
+
+    /**
+     * Reports every keyword occurrence in the text, including overlapping ones, ordered by match end.
+     */
+    public void match(CharSequence text, MatchHandler handler) {
+        int state = INITIAL_STATE;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = step(state, text.charAt(i), i, handler);
+        }
+    }
+
+    /**
+     * Feeds one character to the automaton, for callers that scan the text themselves. Start with
+     * {@link #INITIAL_STATE} and pass the returned state with the next character.
+     *
+     * @param state  the state returned for the previous character
+     * @param c      the character
+     * @param offset the offset of the character in the text
+     * @return the state after the character
+     */
+    public int step(int state, char c, int offset, MatchHandler handler) {
+        int next;
+        while ((next = transition(state, c)) < 0 && state != ROOT) {
+            state = fail[state];
+        }
+        state = next < 0 ? ROOT : next;
+        for (int s = output[state] >= 0 ? state : dictLink[state]; s > ROOT; s = dictLink[s]) {
+            int keywordIndex = output[s];
+            handler.onMatch(offset + 1 - keywords[keywordIndex].length(), offset + 1, keywordIndex);
+        }
+        return state;
+    }
+
+    private int transition(int state, char c) {
+        long key = key(state, c);
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long k = keys[slot];
+            if (k == key) {
+                return targets[slot];
+            }
+            if (k == EMPTY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Computes fail and dictionary links in breadth-first order.
+     */
+    private void link(Builder builder) {
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        Arrays.fill(dictLink, -1);
+        for (int child = builder.firstChild[ROOT]; child > ROOT; child = builder.nextSibling[child]) {
+            fail[child] = ROOT;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int child = builder.firstChild[state]; child > ROOT; child = builder.nextSibling[child]) {
+                char c = builder.label[child];
+                int f = fail[state];
+                int next;
+                while ((next = transition(f, c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 ? ROOT : next;
+                int failState = fail[child];
+                dictLink[child] = output[failState] >= 0 ? failState : dictLink[failState];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 16) | c;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Mutable trie used while compiling.
+     */
+    private static final class Builder {
+
+        private int stateCount = 1;
+        private char[] label;
+        private int[] firstChild;
+        private int[] nextSibling;
+        private int[] output;
+        private long[] keys;
+        private int[] targets;
+
+        Builder(String[] keywords) {
+            int capacity = 1;
+            for (String keyword : keywords) {
+                capacity += keyword.length();
+            }
+            label = new char[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            output = new int[capacity];
+            Arrays.fill(output, -1);
+            keys = new long[tableSize(capacity)];
+            targets = new int[keys.length];
+            Arrays.fill(keys, EMPTY);
+
+            for (int i = 0; i < keywords.length; i++) {
+                add(keywords[i], i);
+            }
+        }
+
+        private static int tableSize(int entries) {
+            int size = 2;
+            while (size < entries * 2) {
+                size <<= 1;
+            }
+            return size;
+        }
+
+        private void add(String keyword, int keywordIndex) {
+            if (keyword.isEmpty()) {
+                return;
+            }
+            int state = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                state = child(state, keyword.charAt(i));
+            }
+            if (output[state] < 0) {
+                output[state] = keywordIndex;
+            }
+        }
+
+        private int child(int state, char c) {
+            long key = key(state, c);
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    return targets[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            int child = stateCount++;
+            keys[slot] = key;
+            targets[slot] = child;
+            label[child] = c;
+            nextSibling[child] = firstChild[state];
+            firstChild[state] = child;
+            return child;
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.lesson2.gazetteer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Compiles a text gazetteer into the binary keyword trie format read by {@link MappedKeywordTrie}.
+ * <p>
+ * The text gazetteer is a UTF-8 file with one entry per line: {@code keyword<TAB>type}. The type may be omitted,
+ * in which case the default type is used. Empty lines and lines starting with {@code #} are skipped, duplicate
+ * keywords keep the first type.
+ * <p>
+ * Binary layout (big-endian):
+ * <pre>
+ * header: int magic, int version, int nodeCount, int edgeCount, int typeCount
+ * nodes:  nodeCount x (int edgeStart, int edgeCount, int fail, int dictLink, int type, int length)
+ * edges:  edgeCount x (int char, int target), sorted by char within a node
+ * types:  typeCount x modified UTF-8 string
+ * </pre>
+ * Nodes are numbered in breadth-first order, node 0 is the root. {@code type} is -1 for nodes not ending an entry,
+ * {@code length} is the entry length for the others.
+ */
+public class KeywordTrieCompiler {
+
+    static final int MAGIC = 0x4B575431; // "KWT1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 5 * Integer.BYTES;
+    static final int NODE_SIZE = 6 * Integer.BYTES;
+    static final int EDGE_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * Command line entry point: {@code KeywordTrieCompiler <gazetteer.txt> <gazetteer.bin> [defaultType]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: KeywordTrieCompiler <gazetteer.txt> <gazetteer.bin> [defaultType]");
+            System.exit(1);
+        }
+        compile(Paths.get(args[0]), Paths.get(args[1]), args.length > 2 ? args[2] : null);
+    }
+
+    /**
+     * Compiles the text gazetteer into the binary trie file.
+     *
+     * @param source      the text gazetteer
+     * @param target      the binary file to write
+     * @param defaultType the type for entries without one, entries without a type are rejected if null
+     */
+    public static void compile(Path source, Path target, String defaultType) throws IOException {
+        TreeMap<String, String> entries = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                String keyword = tab < 0 ? line : line.substring(0, tab);
+                String type = tab < 0 ? defaultType : line.substring(tab + 1);
+                if (type == null || type.isEmpty() || keyword.isEmpty()) {
+                    throw new IOException("Invalid gazetteer entry at " + source + ":" + lineNumber);
+                }
+                entries.putIfAbsent(keyword, type);
+            }
+        }
+        compile(entries, target);
+    }
+
+    /**
+     * Compiles keyword to type entries into the binary trie file. A naturally ordered {@link SortedMap} is read as
+     * is, other maps are sorted into a copy first.
+     */
+    public static void compile(Map<String, String> entries, Path target) throws IOException {
+        Trie trie = new Trie();
+        // Natural String order is the char order the trie relies on to keep children sorted
+        boolean sorted = entries instanceof SortedMap && ((SortedMap<String, String>) entries).comparator() == null;
+        (sorted ? entries : new TreeMap<>(entries)).forEach(trie::add);
+        trie.write(target);
+    }
+
+    /**
+     * In-heap trie built from entries added in ascending keyword order.
+     */
+    private static final class Trie {
+
+        private int size = 1;
+        private char[] label = new char[1024];
+        private int[] firstChild = new int[1024];
+        private int[] lastChild = new int[1024];
+        private int[] nextSibling = new int[1024];
+        private int[] type = filled(new int[1024], 0);
+        private int[] length = new int[1024];
+
+        private final List<String> types = new ArrayList<>();
+        private final Map<String, Integer> typeIds = new HashMap<>();
+
+        void add(String keyword, String entryType) {
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                int last = lastChild[node];
+                // Entries come sorted, so an existing child for c is always the last one
+                if (last > 0 && label[last] == c) {
+                    node = last;
+                } else {
+                    node = newChild(node, c);
+                }
+            }
+            type[node] = typeIds.computeIfAbsent(entryType, t -> {
+                types.add(t);
+                return types.size() - 1;
+            });
+            length[node] = keyword.length();
+        }
+
+        private int newChild(int parent, char c) {
+            if (size == label.length) {
+                int capacity = size * 2;
+                label = Arrays.copyOf(label, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                lastChild = Arrays.copyOf(lastChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                type = filled(Arrays.copyOf(type, capacity), size);
+                length = Arrays.copyOf(length, capacity);
+            }
+            int child = size++;
+            label[child] = c;
+            if (lastChild[parent] > 0) {
+                nextSibling[lastChild[parent]] = child;
+            } else {
+                firstChild[parent] = child;
+            }
+            lastChild[parent] = child;
+            return child;
+        }
+
+        private static int[] filled(int[] array, int from) {
+            Arrays.fill(array, from, array.length, -1);
+            return array;
+        }
+
+        void write(Path target) throws IOException {
+            // Renumber nodes in breadth-first order so that children of a node form one sorted edge range
+            int[] order = new int[size];
+            int[] edgeStart = new int[size];
+            int[] edgeCount = new int[size];
+            char[] edgeChar = new char[size - 1];
+            int[] edgeTarget = new int[size - 1];
+            int tail = 1;
+            int edges = 0;
+            for (int id = 0; id < size; id++) {
+                int node = order[id];
+                edgeStart[id] = edges;
+                for (int child = firstChild[node]; child > 0; child = nextSibling[child]) {
+                    order[tail] = child;
+                    edgeChar[edges] = label[child];
+                    edgeTarget[edges] = tail++;
+                    edges++;
+                }
+                edgeCount[id] = edges - edgeStart[id];
+            }
+
+            int[] fail = new int[size];
+            int[] dictLink = new int[size];
+            Arrays.fill(dictLink, -1);
+            for (int id = 0; id < size; id++) {
+                for (int e = edgeStart[id]; e < edgeStart[id] + edgeCount[id]; e++) {
+                    int child = edgeTarget[e];
+                    int f = 0;
+                    if (id != 0) {
+                        f = fail[id];
+                        int next;
+                        while ((next = transition(edgeStart, edgeCount, edgeChar, edgeTarget, f, edgeChar[e])) < 0 && f != 0) {
+                            f = fail[f];
+                        }
+                        f = next < 0 ? 0 : next;
+                    }
+                    fail[child] = f;
+                    dictLink[child] = type[order[f]] >= 0 ? f : dictLink[f];
+                }
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(size);
+                out.writeInt(edges);
+                out.writeInt(types.size());
+                for (int id = 0; id < size; id++) {
+                    out.writeInt(edgeStart[id]);
+                    out.writeInt(edgeCount[id]);
+                    out.writeInt(fail[id]);
+                    out.writeInt(dictLink[id]);
+                    out.writeInt(type[order[id]]);
+                    out.writeInt(length[order[id]]);
+                }
+                for (int e = 0; e < edges; e++) {
+                    out.writeInt(edgeChar[e]);
+                    out.writeInt(edgeTarget[e]);
+                }
+                for (String t : types) {
+                    out.writeUTF(t);
+                }
+            }
+        }
+
+        private static int transition(int[] edgeStart, int[] edgeCount, char[] edgeChar, int[] edgeTarget, int node, char c) {
+            int low = edgeStart[node];
+            int high = low + edgeCount[node] - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char m = edgeChar[mid];
+                if (m < c) {
+                    low = mid + 1;
+                } else if (m > c) {
+                    high = mid - 1;
+                } else {
+                    return edgeTarget[mid];
+                }
+            }
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.lesson2.gazetteer;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler.EDGE_SIZE;
+import static com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler.HEADER_SIZE;
+import static com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler.MAGIC;
+import static com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler.NODE_SIZE;
+import static com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler.VERSION;
+
+/**
+ * Read-only Aho-Corasick keyword trie memory-mapped from a file written by {@link KeywordTrieCompiler}.
+ * <p>
+ * Nodes and edges stay off-heap in the mapped file and are read with absolute gets, so opening a gazetteer costs
+ * neither heap nor parsing time and instances can be shared between threads. Only the type names are loaded to heap.
+ */
+public final class MappedKeywordTrie {
+
+    /**
+     * Callback receiving the matches.
+     */
+    public interface MatchHandler {
+
+        /**
+         * Called for each occurrence of an entry.
+         *
+         * @param begin     the match begin offset in the text
+         * @param end       the match end offset in the text (exclusive)
+         * @param typeIndex the entry type index, see {@link #getType(int)}
+         */
+        void onMatch(int begin, int end, int typeIndex);
+    }
+
+    private final ByteBuffer buffer;
+    private final int nodeCount;
+    private final int edgesOffset;
+    private final String[] types;
+
+    private MappedKeywordTrie(ByteBuffer buffer, int nodeCount, String[] types) {
+        this.buffer = buffer;
+        this.nodeCount = nodeCount;
+        this.edgesOffset = HEADER_SIZE + nodeCount * NODE_SIZE;
+        this.types = types;
+    }
+
+    /**
+     * Maps the binary trie file.
+     */
+    public static MappedKeywordTrie open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Keyword trie is too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a keyword trie file: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported keyword trie version " + buffer.getInt(4) + ": " + path);
+            }
+            int nodeCount = buffer.getInt(8);
+            int edgeCount = buffer.getInt(12);
+            int typeCount = buffer.getInt(16);
+
+            long typesOffset = HEADER_SIZE + (long) nodeCount * NODE_SIZE + (long) edgeCount * EDGE_SIZE;
+            String[] types = new String[typeCount];
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel.position(typesOffset)));
+            for (int i = 0; i < typeCount; i++) {
+                types[i] = in.readUTF();
+            }
+            return new MappedKeywordTrie(buffer, nodeCount, types);
+        }
+    }
+
+    /**
+     * Returns the type name for the index reported to {@link MatchHandler}.
+     */
+    public String getType(int typeIndex) {
+        return types[typeIndex];
+    }
+
+    /**
+     * Returns the number of trie nodes.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Reports every entry occurrence in the text, including overlapping ones, ordered by match end.
+     */
+    public void match(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = fail(state);
+            }
+            state = next < 0 ? 0 : next;
+            for (int s = type(state) >= 0 ? state : dictLink(state); s > 0; s = dictLink(s)) {
+                handler.onMatch(i + 1 - length(s), i + 1, type(s));
+            }
+        }
+    }
+
+    private int transition(int node, char c) {
+        int base = HEADER_SIZE + node * NODE_SIZE;
+        int low = buffer.getInt(base);
+        int high = low + buffer.getInt(base + 4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int edge = edgesOffset + mid * EDGE_SIZE;
+            int m = buffer.getInt(edge);
+            if (m < c) {
+                low = mid + 1;
+            } else if (m > c) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(edge + 4);
+            }
+        }
+        return -1;
+    }
+
+    private int fail(int node) {
+        return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + 8);
+    }
+
+    private int dictLink(int node) {
+        return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + 12);
+    }
+
+    private int type(int node) {
+        return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + 16);
+    }
+
+    private int length(int node) {
+        return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + 20);
+    }
+
+}
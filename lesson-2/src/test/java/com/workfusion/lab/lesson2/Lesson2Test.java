@@ -3,18 +3,37 @@
  */
 package com.workfusion.lab.lesson2;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
 import com.workfusion.lab.lesson2.annotator.Assignment1KeywordNerAnnotator;
 import com.workfusion.lab.lesson2.annotator.Assignment2EmailNerAnnotator;
+import com.workfusion.lab.lesson2.annotator.EmailScanner;
+import com.workfusion.lab.lesson2.annotator.FusedAnnotator;
+import com.workfusion.lab.lesson2.gazetteer.KeywordTrieCompiler;
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestElementFactory;
 import com.workfusion.lab.utils.BaseLessonTest;
+import com.workfusion.lab.utils.IncrementalAnnotator;
+import com.workfusion.lab.utils.SentenceSegmenter;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
 import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
 import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
 import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
+import com.workfusion.vds.sdk.api.nlp.model.Sentence;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
 import com.workfusion.vds.sdk.nlp.component.annotator.tokenizer.MatcherTokenAnnotator;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class Lesson2Test extends BaseLessonTest {
 
@@ -48,6 +67,56 @@ public class Lesson2Test extends BaseLessonTest {
         checkElements(ners, "lesson_2_assignment_1_check.json");
     }
 
+    /**
+     * Checks that multi-word keywords are found as a whole and single-word keywords only on word boundaries.
+     */
+    @Test
+    public void assignment1MultiWordKeywords() throws Exception {
+        IeDocument document = getDocument("../lesson-3/lesson_3_assignment_2.txt");
+
+        processAnnotators(document, new Assignment1KeywordNerAnnotator(Arrays.asList("West Virginia", "Virginia", "Texas")));
+
+        List<String> ners = document.findAll(NamedEntity.class).stream()
+                .map(NamedEntity::getText)
+                .collect(Collectors.toList());
+        assertThat(ners).contains("West Virginia", "Virginia", "Texas");
+        assertThat(ners).filteredOn("West Virginia"::equals).hasSize(1);
+        assertThat(ners).filteredOn("Virginia"::equals).hasSize(3);
+    }
+
+    /**
+     * Checks the annotator backed by a compiled, memory-mapped gazetteer provides the same entities as the keyword list
+     * and takes the NamedEntity type from the gazetteer entry.
+     */
+    @Test
+    public void assignment1MappedGazetteer() throws Exception {
+        Path source = Files.createTempFile("gazetteer", ".txt");
+        Path compiled = Files.createTempFile("gazetteer", ".bin");
+        try {
+            Files.write(source, Arrays.asList(
+                    "# US states",
+                    "Missouri", "Nevada", "Alaska", "Hawaii", "Texas", "Maryland", "Vermont",
+                    "West Virginia\tstate",
+                    "Civil War\tevent"
+            ), StandardCharsets.UTF_8);
+            KeywordTrieCompiler.compile(source, compiled, "state");
+
+            IeDocument document = getDocument("documents/lesson_2_assignment_1.txt");
+            processAnnotators(document, new Assignment1KeywordNerAnnotator(compiled));
+            List<NamedEntity> ners = document.findAll(NamedEntity.class).stream()
+                    .filter(n -> n.getType().equals("state"))
+                    .collect(Collectors.toList());
+            checkElements(ners, "lesson_2_assignment_1_check.json");
+            assertThat(document.findAll(NamedEntity.class).stream()
+                    .filter(n -> n.getType().equals("event"))
+                    .map(NamedEntity::getText)
+                    .collect(Collectors.toList())).containsExactly("Civil War");
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(compiled);
+        }
+    }
+
     /**
      * <p><b>Assignment 2</b></p>
      * <p>
@@ -77,4 +146,216 @@ public class Lesson2Test extends BaseLessonTest {
         checkElements(ners, "lesson_2_assignment_2_check.json");
     }
 
-}
\ No newline at end of file
+    /**
+     * Checks that the {@link Assignment2EmailNerAnnotator.Mode#SCANNER} recognizer provides the same NamedEntities as the
+     * {@link Assignment2EmailNerAnnotator.Mode#REGEX} reference implementation.
+     */
+    @Test
+    public void assignment2ScannerMatchesRegex() throws Exception {
+        assertThat(findEmails("documents/lesson_2_assignment_2.txt", Assignment2EmailNerAnnotator.Mode.SCANNER))
+                .containsExactlyElementsOf(findEmails("documents/lesson_2_assignment_2.txt", Assignment2EmailNerAnnotator.Mode.REGEX));
+    }
+
+    private List<TestElement> findEmails(String path, Assignment2EmailNerAnnotator.Mode mode) throws Exception {
+        IeDocument document = getDocument(path);
+        processAnnotators(document, new Assignment2EmailNerAnnotator(mode));
+        return document.findAll(NamedEntity.class).stream()
+                .map(TestElementFactory::createElement)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that {@link EmailScanner} provides the same NamedEntities as the regex on inputs the regex backtracks on:
+     * long runs of word characters and dots around '@', with and without a top level domain at the end. The scaling
+     * with the input size is measured by EmailScannerBenchmark.
+     */
+    @Test
+    public void assignment2ScannerMatchesRegexOnPathologicalInput() {
+        for (String suffix : Arrays.asList("", ".com", " b.com", "@b.com")) {
+            String text = createPathologicalEmailText(1 << 11) + suffix;
+            assertThat(findEmailsInText(text, Assignment2EmailNerAnnotator.Mode.SCANNER))
+                    .as("suffix '%s'", suffix)
+                    .containsExactlyElementsOf(findEmailsInText(text, Assignment2EmailNerAnnotator.Mode.REGEX));
+        }
+    }
+
+    /**
+     * Returns "a.a.a...@b.b.b..." with runs of the given length on both sides of '@'.
+     */
+    private static String createPathologicalEmailText(int size) {
+        StringBuilder text = new StringBuilder(2 * size + 1);
+        for (int i = 0; i < size; i++) {
+            text.append(i % 2 == 0 ? 'a' : '.');
+        }
+        text.append('@');
+        for (int i = 0; i < size; i++) {
+            text.append(i % 2 == 0 ? 'b' : '.');
+        }
+        return text.toString();
+    }
+
+    private List<TestElement> findEmailsInText(String text, Assignment2EmailNerAnnotator.Mode mode) {
+        IeDocument document = DocumentFactory.createIeDocument(text, text);
+        processAnnotators(document, new Assignment2EmailNerAnnotator(mode));
+        return document.findAll(NamedEntity.class).stream()
+                .map(TestElementFactory::createElement)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Checks that {@link FusedAnnotator} provides the same Tokens, Sentences and NamedEntities as the token, sentence,
+     * keyword and email annotators run one after another.
+     */
+    @Test
+    public void fusedAnnotatorMatchesChainedAnnotators() throws Exception {
+        for (String path : Arrays.asList("documents/lesson_2_assignment_1.txt", "documents/lesson_2_assignment_2.txt")) {
+            IeDocument chained = getDocument(path);
+            processAnnotators(chained, createChainedAnnotators());
+            IeDocument fused = getDocument(path);
+            processAnnotators(fused, new FusedAnnotator());
+
+            assertThat(findElements(fused, Token.class)).containsExactlyElementsOf(findElements(chained, Token.class));
+            assertThat(findElements(fused, Sentence.class)).containsExactlyElementsOf(findElements(chained, Sentence.class));
+            assertThat(findElements(fused, NamedEntity.class)).containsExactlyElementsOf(findElements(chained, NamedEntity.class));
+        }
+    }
+
+    /**
+     * Checks that re-annotating only the sentences around an edit provides the same elements as processing the whole
+     * edited text.
+     */
+    @Test
+    public void reprocessAnnotatorsMatchesFullProcessing() throws Exception {
+        IeDocument document = getDocument("../lesson-3/lesson_3_assignment_1.txt");
+        processAnnotators(document, createChainedAnnotators());
+        String text = document.getText();
+
+        int sentenceEnd = text.indexOf("1959.") + "1959.".length();
+        String inserted = text.substring(0, sentenceEnd) + " Write to jane.doe@example.com in Texas." + text.substring(sentenceEnd);
+        String deleted = text.replace("Maryland and ", "");
+
+        for (String editedText : Arrays.asList(inserted, deleted)) {
+            IncrementalAnnotator.Edit edit = IncrementalAnnotator.Edit.between(text, editedText);
+            assertThat(edit.apply(text)).isEqualTo(editedText);
+            IncrementalAnnotator.Window window = new IncrementalAnnotator(Arrays.asList(createChainedAnnotators()))
+                    .findWindow(document, edit);
+            assertThat(window.getEnd() - window.getBegin()).isLessThan(text.length() / 2);
+            assertReprocessingMatchesFullProcessing(document, editedText);
+        }
+
+        // "no." only ends a sentence before a capitalized word, so the edit decides the previous sentence border
+        String abbreviationText = "He said no. Five left.";
+        IeDocument abbreviation = DocumentFactory.createIeDocument(abbreviationText, abbreviationText);
+        processAnnotators(abbreviation, createChainedAnnotators());
+        assertReprocessingMatchesFullProcessing(abbreviation, "He said no. 5 left.");
+    }
+
+    private void assertReprocessingMatchesFullProcessing(IeDocument document, String editedText) {
+        IncrementalAnnotator.Edit edit = IncrementalAnnotator.Edit.between(document.getText(), editedText);
+        IeDocument incremental = reprocessAnnotators(document, edit, createChainedAnnotators());
+        IeDocument full = DocumentFactory.createIeDocument(editedText, editedText);
+        processAnnotators(full, createChainedAnnotators());
+
+        assertThat(incremental.getText()).isEqualTo(editedText);
+        assertThat(findElements(incremental, Token.class)).containsExactlyElementsOf(findElements(full, Token.class));
+        assertThat(findElements(incremental, Sentence.class)).containsExactlyElementsOf(findElements(full, Sentence.class));
+        assertThat(findElements(incremental, NamedEntity.class)).containsExactlyElementsOf(findElements(full, NamedEntity.class));
+    }
+
+    /**
+     * Checks that processing a document in windows smaller than the document provides the same elements, with offsets
+     * in the whole text, as processing it at once.
+     */
+    @Test
+    public void processAnnotatorsChunkedMatchesFullProcessing() throws Exception {
+        String path = "../lesson-3/lesson_3_assignment_2.txt";
+        IeDocument document = getDocument(path);
+        processAnnotators(document, createChainedAnnotators());
+
+        List<TestElement> tokens = new ArrayList<>();
+        List<TestElement> sentences = new ArrayList<>();
+        List<TestElement> ners = new ArrayList<>();
+        long length = processAnnotatorsChunked(path, 1024, (element, begin, end) -> {
+            TestElement testElement = TestElementFactory.createElement(element);
+            testElement.setBegin((int) begin);
+            testElement.setEnd((int) end);
+            if (element instanceof Token) {
+                tokens.add(testElement);
+            } else if (element instanceof Sentence) {
+                sentences.add(testElement);
+            } else {
+                ners.add(testElement);
+            }
+        }, createChainedAnnotators());
+
+        assertThat(length).isEqualTo(document.getText().length()).isGreaterThan(2 * 1024);
+        assertThat(tokens).containsExactlyElementsOf(findElements(document, Token.class));
+        assertThat(sentences).containsExactlyElementsOf(findElements(document, Sentence.class));
+        assertThat(ners).containsExactlyElementsOf(findElements(document, NamedEntity.class));
+    }
+
+    /**
+     * Checks that a window is not cut at a sentence delimiter whose next word is not in the window yet: after "No." the
+     * sentence only ends if a capitalized word follows.
+     */
+    @Test
+    public void processAnnotatorsChunkedWaitsForWordAfterDelimiter() throws Exception {
+        String text = "He left. See No. 5 now. It was fine.";
+        Path path = Files.createTempFile("chunked", ".txt");
+        try {
+            Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+            IeDocument document = getDocument(path.toString());
+            processAnnotators(document, createChainedAnnotators());
+
+            List<TestElement> sentences = new ArrayList<>();
+            // The first window ends right before "5"
+            processAnnotatorsChunked(path.toString(), text.indexOf('5'), (element, begin, end) -> {
+                if (element instanceof Sentence) {
+                    TestElement testElement = TestElementFactory.createElement(element);
+                    testElement.setBegin((int) begin);
+                    testElement.setEnd((int) end);
+                    sentences.add(testElement);
+                }
+            }, createChainedAnnotators());
+
+            assertThat(sentences).containsExactlyElementsOf(findElements(document, Sentence.class));
+            assertThat(sentences).extracting(TestElement::getBegin).containsExactly(0, 8, 23);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Creates the token and sentence annotators of lesson 1, as provided by the SDK regex tokenizer and
+     * {@link SentenceSegmenter}, followed by the keyword and email annotators.
+     */
+    private static Annotator[] createChainedAnnotators() {
+        return new Annotator[] {
+                new MatcherTokenAnnotator("\\w+"),
+                new SegmenterSentenceAnnotator(),
+                new Assignment1KeywordNerAnnotator(),
+                new Assignment2EmailNerAnnotator()
+        };
+    }
+
+    private static List<TestElement> findElements(Document document, Class<? extends Element> type) {
+        return document.findAll(type).stream()
+                .map(TestElementFactory::createElement)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the Sentences of {@link SentenceSegmenter#getDefault()}.
+     */
+    private static class SegmenterSentenceAnnotator implements Annotator<Document> {
+
+        @Override
+        public void process(Document document) {
+            SentenceSegmenter.getDefault().segment(document.getText(), (begin, end) -> document.add(Sentence.descriptor()
+                    .setBegin(begin)
+                    .setEnd(end)));
+        }
+
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe interner of feature names to dense int ids, used by {@link SparseFeatureVector}.
+ * <p>
+ * Ids are assigned in first-seen order and never reused. Lookups of known names are a single concurrent map read,
+ * only new names take the lock.
+ */
+public final class FeatureDictionary {
+
+    private static final FeatureDictionary GLOBAL = new FeatureDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private volatile int size;
+
+    /**
+     * Returns the dictionary shared by all feature vectors.
+     */
+    public static FeatureDictionary global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the id of the name, assigning the next one if the name is new.
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Returns the id of the name, or -1 if the name was never added.
+     */
+    public int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the name of the id.
+     */
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown feature id: " + id);
+        }
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the names in id order.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int count = size;
+        String[] snapshot = names;
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeUTF(snapshot[i]);
+        }
+    }
+
+    /**
+     * Reads names written by {@link #writeTo(DataOutput)} into this dictionary.
+     *
+     * @return the ids in this dictionary indexed by the written ids
+     */
+    public int[] readFrom(DataInput in) throws IOException {
+        int[] mapping = new int[in.readInt()];
+        for (int i = 0; i < mapping.length; i++) {
+            mapping[i] = id(in.readUTF());
+        }
+        return mapping;
+    }
+
+    private synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        int next = size;
+        if (next == names.length) {
+            names = Arrays.copyOf(names, next * 2);
+        }
+        // The name is published before the size, so name(id) never sees a missing entry
+        names[next] = name;
+        size = next + 1;
+        ids.put(name, next);
+        return next;
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.workfusion.vds.sdk.api.nlp.fe.Feature;
+
+/**
+ * Immutable sparse vector of token features: parallel arrays of {@link FeatureDictionary#global()} name ids and
+ * values, sorted by id and then value.
+ * <p>
+ * A feature costs 12 bytes instead of a hash set entry, a {@link Feature} and its name. Equal features are stored
+ * once, like in a {@code Set<Feature>}. Comparison and serialization walk the arrays without allocating.
+ */
+public final class SparseFeatureVector {
+
+    private static final int[] NO_IDS = new int[0];
+    private static final double[] NO_VALUES = new double[0];
+
+    public static final SparseFeatureVector EMPTY = new SparseFeatureVector(NO_IDS, NO_VALUES);
+
+    private final int[] ids;
+    private final double[] values;
+
+    private SparseFeatureVector(int[] ids, double[] values) {
+        this.ids = ids;
+        this.values = values;
+    }
+
+    /**
+     * Creates the vector of the features.
+     */
+    public static SparseFeatureVector of(Collection<Feature> features) {
+        return new Builder(features.size()).addAll(features).build();
+    }
+
+    /**
+     * Returns the number of non-zero entries.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public String getName(int index) {
+        return FeatureDictionary.global().name(ids[index]);
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the index of the first entry with the feature name, or a negative value if there is none.
+     */
+    public int indexOf(String name) {
+        int id = FeatureDictionary.global().find(name);
+        if (id < 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = ids.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] < id) {
+                low = middle + 1;
+            } else {
+                if (ids[middle] == id) {
+                    found = middle;
+                }
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns true if both vectors have the same feature names and their values differ at most by the tolerance.
+     */
+    public boolean matches(SparseFeatureVector other, double tolerance) {
+        if (ids.length != other.ids.length) {
+            return false;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != other.ids[i] || Math.abs(values[i] - other.values[i]) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the vector back to features.
+     */
+    public Set<Feature> toFeatures() {
+        Set<Feature> features = new HashSet<>(Math.max(16, ids.length * 4 / 3 + 1));
+        for (int i = 0; i < ids.length; i++) {
+            features.add(new Feature(getName(i), values[i]));
+        }
+        return features;
+    }
+
+    /**
+     * Writes the entries with global dictionary ids, see {@link FeatureDictionary#writeTo(DataOutput)}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            out.writeInt(ids[i]);
+            out.writeDouble(values[i]);
+        }
+    }
+
+    /**
+     * Reads a vector written by {@link #writeTo(DataOutput)}.
+     *
+     * @param idMapping the global ids indexed by the written ids, as returned by
+     *                  {@link FeatureDictionary#readFrom(DataInput)}, or null if the ids were written by this JVM
+     */
+    public static SparseFeatureVector readFrom(DataInput in, int[] idMapping) throws IOException {
+        int size = in.readInt();
+        Builder builder = new Builder(size);
+        for (int i = 0; i < size; i++) {
+            int id = in.readInt();
+            builder.add(idMapping == null ? id : idMapping[id], in.readDouble());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SparseFeatureVector)) {
+            return false;
+        }
+        SparseFeatureVector other = (SparseFeatureVector) obj;
+        return Arrays.equals(ids, other.ids) && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(ids) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int i = 0; i < ids.length; i++) {
+            result.append(i == 0 ? "" : ", ").append(getName(i)).append('=').append(values[i]);
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * Reusable vector builder. {@link #build()} copies the entries and clears the builder, so one builder per thread
+     * serves all tokens without reallocating its arrays.
+     */
+    public static final class Builder {
+
+        private int[] ids;
+        private double[] values;
+        private int size;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int capacity) {
+            this.ids = new int[Math.max(capacity, 1)];
+            this.values = new double[Math.max(capacity, 1)];
+        }
+
+        public Builder add(Feature feature) {
+            return add(FeatureDictionary.global().id(feature.getName()), feature.getValue());
+        }
+
+        public Builder addAll(Collection<Feature> features) {
+            for (Feature feature : features) {
+                add(feature);
+            }
+            return this;
+        }
+
+        Builder add(int id, double value) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            ids[size] = id;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * Returns the vector of the added features and clears the builder.
+         */
+        public SparseFeatureVector build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            sort(0, size - 1);
+            int unique = 1;
+            for (int i = 1; i < size; i++) {
+                if (ids[i] != ids[unique - 1] || Double.compare(values[i], values[unique - 1]) != 0) {
+                    ids[unique] = ids[i];
+                    values[unique] = values[i];
+                    unique++;
+                }
+            }
+            SparseFeatureVector vector = new SparseFeatureVector(Arrays.copyOf(ids, unique), Arrays.copyOf(values, unique));
+            size = 0;
+            return vector;
+        }
+
+        /**
+         * Sorts the entries by id and value: quicksort on the parallel arrays, insertion sort for short ranges.
+         */
+        private void sort(int from, int to) {
+            while (to - from >= 16) {
+                int middle = (from + to) >>> 1;
+                int pivotId = ids[middle];
+                double pivotValue = values[middle];
+                int i = from;
+                int j = to;
+                while (i <= j) {
+                    while (compare(i, pivotId, pivotValue) < 0) {
+                        i++;
+                    }
+                    while (compare(j, pivotId, pivotValue) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // Recurses into the smaller part to bound the stack depth
+                if (j - from < to - i) {
+                    sort(from, j);
+                    from = i;
+                } else {
+                    sort(i, to);
+                    to = j;
+                }
+            }
+            for (int i = from + 1; i <= to; i++) {
+                int id = ids[i];
+                double value = values[i];
+                int j = i - 1;
+                while (j >= from && compare(j, id, value) > 0) {
+                    ids[j + 1] = ids[j];
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                ids[j + 1] = id;
+                values[j + 1] = value;
+            }
+        }
+
+        private int compare(int index, int id, double value) {
+            return ids[index] != id ? Integer.compare(ids[index], id) : Double.compare(values[index], value);
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+}
@@ -3,17 +3,25 @@
  */
 package com.workfusion.lab.model;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import com.workfusion.vds.sdk.api.nlp.fe.Feature;
 
 /**
  * This class represents test DTO to stitch together {@link Token} and produced {@link Feature}.
+ * <p>
+ * The features are kept either as a set, as read from the JSON pattern files, or as a compact
+ * {@link SparseFeatureVector}, as extracted; each form is derived from the other on demand. Only the set is
+ * serialized, so convert extracted features with {@link #toSerializable(List)} before writing them.
  */
 public class TestTokenFeatures {
 
     private TestElement element;
     private Set<Feature> features;
+    private transient SparseFeatureVector vector;
 
     public TestElement getElement() {
         return element;
@@ -23,12 +31,54 @@ public class TestTokenFeatures {
         this.element = element;
     }
 
+    /**
+     * Returns the unmodifiable features, a new set on every call if they are stored as a vector, null if none were
+     * set.
+     */
     public Set<Feature> getFeatures() {
-        return features;
+        if (features == null && vector != null) {
+            return Collections.unmodifiableSet(vector.toFeatures());
+        }
+        return features != null ? Collections.unmodifiableSet(features) : null;
     }
 
     public void setFeatures(Set<Feature> features) {
         this.features = features;
+        this.vector = null;
+    }
+
+    /**
+     * Returns the features as a vector, empty if none were set.
+     */
+    public SparseFeatureVector getVector() {
+        if (vector == null) {
+            return features != null ? (vector = SparseFeatureVector.of(features)) : SparseFeatureVector.EMPTY;
+        }
+        return vector;
+    }
+
+    public void setVector(SparseFeatureVector vector) {
+        this.vector = vector;
+        this.features = null;
+    }
+
+    /**
+     * Returns copies of the token features with the features stored as sets, the form written to the JSON pattern
+     * files. The given token features are left as they are.
+     */
+    public static List<TestTokenFeatures> toSerializable(List<TestTokenFeatures> tokenFeatures) {
+        List<TestTokenFeatures> result = new ArrayList<>(tokenFeatures.size());
+        for (TestTokenFeatures source : tokenFeatures) {
+            TestTokenFeatures copy = new TestTokenFeatures();
+            copy.setElement(source.getElement());
+            if (source.features == null && source.vector != null) {
+                copy.setFeatures(source.vector.toFeatures());
+            } else {
+                copy.setFeatures(source.features);
+            }
+            result.add(copy);
+        }
+        return result;
     }
 
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.workfusion.vds.nlp.uima.model.lifecycle.LifecycleEventExecutor;
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+
+/**
+ * Reusable annotator pipeline processing documents concurrently.
+ * <p>
+ * Annotators are initialized once and destroyed on {@link #close()}. Each annotator declares its thread-safety when
+ * it is added: a thread-safe annotator is shared by all worker threads, the others are created by a factory once
+ * per worker thread. Every document is processed by all annotators in the order they were added, by one thread.
+ * On close the worker threads finish the running documents first; each destroys its own per-thread annotators as it
+ * stops, and the shared ones are destroyed once all of them have stopped.
+ * <pre>
+ * try (AnnotatorPipeline pipeline = new AnnotatorPipeline.Builder()
+ *         .addShared(new Assignment1TokenAnnotator())
+ *         .addPerThread(Assignment2SentenceAnnotator::new)
+ *         .build()) {
+ *     AnnotatorPipeline.Report report = pipeline.process(documents);
+ * }
+ * </pre>
+ */
+@SuppressWarnings("unchecked")
+public final class AnnotatorPipeline implements AutoCloseable {
+
+    private static final LessonLogger logger = new LessonLogger(LogFactory.getLog("TRAINING"));
+
+    /**
+     * Time to wait for the running documents on close, before and after interrupting the worker threads.
+     */
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Pipeline stages in processing order: shared annotator or null, factory for the per-thread ones.
+     */
+    private final List<Annotator> shared;
+    private final List<Supplier<? extends Annotator>> factories;
+    private final int parallelism;
+
+    private final ExecutorService executor;
+    private final List<Thread> workers = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Annotator[]> threadAnnotators = new ThreadLocal<>();
+    private volatile boolean closed;
+
+    private AnnotatorPipeline(Builder builder) {
+        this.shared = new ArrayList<>(builder.shared);
+        this.factories = new ArrayList<>(builder.factories);
+        this.parallelism = builder.parallelism;
+        for (int i = 0; i < shared.size(); i++) {
+            if (shared.get(i) != null) {
+                try {
+                    init(shared.get(i));
+                } catch (RuntimeException | Error e) {
+                    destroyShared(i);
+                    throw e;
+                }
+            }
+        }
+        this.executor = Executors.newFixedThreadPool(parallelism, this::newWorker);
+    }
+
+    private Thread newWorker(Runnable runnable) {
+        Thread worker = new Thread(() -> {
+            try {
+                runnable.run();
+            } finally {
+                destroyThreadAnnotators();
+            }
+        }, "annotator-pipeline-" + workers.size());
+        workers.add(worker);
+        return worker;
+    }
+
+    /**
+     * Processes the documents and waits for completion. At most twice the parallelism documents are queued, so the
+     * documents may be produced lazily by the iterable.
+     *
+     * @return the throughput report
+     * @throws IllegalStateException if the pipeline is closed, also while processing
+     */
+    public Report process(Iterable<? extends Document> documents) {
+        if (closed) {
+            throw new IllegalStateException("Annotator pipeline is closed");
+        }
+        long start = System.nanoTime();
+        Semaphore slots = new Semaphore(parallelism * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (Document document : documents) {
+                slots.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        for (Annotator annotator : annotators()) {
+                            ComponentMetrics.Probe probe = ComponentMetrics.start();
+                            annotator.process(document);
+                            ComponentMetrics.stop(probe, annotator);
+                        }
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("Annotator pipeline is closed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing documents", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Annotator failed", e.getCause());
+        }
+        Report report = new Report(futures.size(), System.nanoTime() - start, parallelism);
+        logger.info("{0}", report);
+        return report;
+    }
+
+    /**
+     * Returns the annotators of the current worker thread, creating the per-thread ones on first use. If a factory or
+     * an init fails, the per-thread annotators already initialized are destroyed.
+     */
+    private Annotator[] annotators() {
+        Annotator[] annotators = threadAnnotators.get();
+        if (annotators == null) {
+            annotators = new Annotator[shared.size()];
+            for (int i = 0; i < annotators.length; i++) {
+                if (shared.get(i) != null) {
+                    annotators[i] = shared.get(i);
+                    continue;
+                }
+                try {
+                    Annotator annotator = factories.get(i).get();
+                    init(annotator);
+                    annotators[i] = annotator;
+                } catch (RuntimeException | Error e) {
+                    destroyThreadAnnotators(annotators);
+                    throw e;
+                }
+            }
+            threadAnnotators.set(annotators);
+        }
+        return annotators;
+    }
+
+    /**
+     * Destroys the per-thread annotators of the current worker thread, called by the worker as it stops.
+     */
+    private void destroyThreadAnnotators() {
+        Annotator[] annotators = threadAnnotators.get();
+        if (annotators != null) {
+            threadAnnotators.remove();
+            destroyThreadAnnotators(annotators);
+        }
+    }
+
+    /**
+     * Destroys the initialized per-thread annotators of the array, null for those not created.
+     */
+    private void destroyThreadAnnotators(Annotator[] annotators) {
+        for (int i = 0; i < annotators.length; i++) {
+            if (shared.get(i) == null && annotators[i] != null) {
+                destroy(annotators[i]);
+            }
+        }
+    }
+
+    /**
+     * Destroys the shared annotators before the index.
+     */
+    private void destroyShared(int end) {
+        for (int i = 0; i < end; i++) {
+            if (shared.get(i) != null) {
+                destroy(shared.get(i));
+            }
+        }
+    }
+
+    private void init(Annotator annotator) {
+        logger.info("\t{0}::Init", annotator.getClass().getName());
+        LifecycleEventExecutor.getInstance().executeInit(annotator, Collections.emptyMap());
+    }
+
+    private void destroy(Annotator annotator) {
+        logger.info("\t{0}::Destroy", annotator.getClass().getName());
+        LifecycleEventExecutor.getInstance().executeDestroy(annotator, Collections.emptyMap());
+    }
+
+    /**
+     * Waits for the running documents, stops the worker threads and destroys all annotator instances. The worker
+     * threads are interrupted if the documents are not done in time; if they still do not stop, the shared
+     * annotators are left undestroyed as they may still be in use.
+     *
+     * @throws IllegalStateException if the worker threads do not stop
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Annotators are still running after {0} s, interrupting them", CLOSE_TIMEOUT_SECONDS);
+                executor.shutdownNow();
+                if (!executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Annotators are still running, they are not destroyed");
+                }
+            }
+            // The pool terminates before the workers have destroyed their annotators
+            synchronized (workers) {
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stopping the worker threads", e);
+        }
+        destroyShared(shared.size());
+    }
+
+    /**
+     * Pipeline builder.
+     */
+    public static final class Builder {
+
+        private final List<Annotator> shared = new ArrayList<>();
+        private final List<Supplier<? extends Annotator>> factories = new ArrayList<>();
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Adds a thread-safe annotator, the instance is shared by all worker threads.
+         */
+        public Builder addShared(Annotator annotator) {
+            if (annotator == null) {
+                throw new IllegalArgumentException("Shared annotator must not be null");
+            }
+            shared.add(annotator);
+            factories.add(null);
+            return this;
+        }
+
+        /**
+         * Adds an annotator that is not thread-safe, each worker thread gets its own instance from the factory.
+         */
+        public Builder addPerThread(Supplier<? extends Annotator> factory) {
+            if (factory == null) {
+                throw new IllegalArgumentException("Annotator factory must not be null");
+            }
+            shared.add(null);
+            factories.add(factory);
+            return this;
+        }
+
+        /**
+         * Sets the number of worker threads, the number of available processors by default.
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public AnnotatorPipeline build() {
+            return new AnnotatorPipeline(this);
+        }
+    }
+
+    /**
+     * Throughput of one {@link #process(Iterable)} call.
+     */
+    public static final class Report {
+
+        private final int documents;
+        private final long elapsedNanos;
+        private final int parallelism;
+
+        Report(int documents, long elapsedNanos, int parallelism) {
+            this.documents = documents;
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        public int getDocuments() {
+            return documents;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public double getDocumentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : documents * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Processed %d documents in %.1f ms on %d threads: %.1f documents/s",
+                    documents, elapsedNanos / 1e6, parallelism, getDocumentsPerSecond());
+        }
+    }
+
+}
@@ -12,25 +12,29 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.security.Permission;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.reflect.FieldUtils;
@@ -50,6 +54,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.opencsv.CSVReader;
 import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.SparseFeatureVector;
 import com.workfusion.lab.model.TestElementFactory;
 import com.workfusion.lab.model.TestTokenFeatures;
 import com.workfusion.nlp.uima.api.parameter.sweeping.Dimension;
@@ -83,7 +88,6 @@ import com.workfusion.vds.sdk.api.nlp.processing.Processor;
 import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.fail;
 
 public class BaseLessonTest {
@@ -93,6 +97,16 @@ public class BaseLessonTest {
      */
     protected static final Log logger = LogFactory.getLog("TRAINING");
 
+    /**
+     * Level-guarded facade over {@link #logger} with cached message formats
+     */
+    protected static final LessonLogger lessonLogger = new LessonLogger(logger);
+
+    /**
+     * Minimum number of tokens per chunk in parallel feature extraction
+     */
+    private static final int FEATURE_CHUNK_MIN_SIZE = 256;
+
     /**
      * Input directory path to use.
      */
@@ -118,6 +132,11 @@ public class BaseLessonTest {
      */
     public final static String MODEL_DIR_PATH = TRAINING_OUTPUT_DIR_PATH + "output/model/";
 
+    /**
+     * Cache of context-free FE features, disabled if null
+     */
+    private FeatureCache featureCache;
+
     /**
      * Helper method: creates default configuration context.
      *
@@ -279,53 +298,81 @@ public class BaseLessonTest {
      * @throws IOException is the file doesn't exist
      */
     protected IeDocument getDocument(String documentPath) throws IOException {
+        return getDocument(documentPath, DocumentParser.Mode.DOM);
+    }
+
+    /**
+     * Helper method: Creates ML-SDK document from the provided file path.
+     *
+     * @param documentPath - the document path
+     * @param parserMode   - the HTML parsing strategy to use for HTML documents
+     * @return ML-SDK document
+     * @throws IOException is the file doesn't exist
+     */
+    protected IeDocument getDocument(String documentPath, DocumentParser.Mode parserMode) throws IOException {
         log("Loading document {0} for checking ...", documentPath);
+        return getDocument(documentPath, NormalizedText.read(Paths.get(documentPath)), parserMode);
+    }
+
+    /**
+     * Helper method: Creates ML-SDK document from the already read text of the provided file path. The caller keeps
+     * the {@link NormalizedText} to translate offsets in the document content back to offsets in the file with
+     * {@link NormalizedText#toRawOffset(int)}.
+     *
+     * @param documentPath - the document path, HTML documents are recognized by the extension
+     * @param text         - the normalized text of the document file, see {@link NormalizedText#read(Path)}
+     * @param parserMode   - the HTML parsing strategy to use for HTML documents
+     * @return ML-SDK document with the normalized text as the content
+     */
+    protected IeDocument getDocument(String documentPath, NormalizedText text, DocumentParser.Mode parserMode) {
         Path path = Paths.get(documentPath);
-        String content = new String(Files.readAllBytes(Paths.get(documentPath)), StandardCharsets.UTF_8)
-                .replaceAll("(\\r\\n|\\r|\\n)+", "\r\n");
+        String content = text.getText();
 
         IeDocument document;
         if (FileSystems.getDefault().getPathMatcher("glob:**.html").matches(path)) {
-            DocumentParser formatter = new DocumentParser();
+            DocumentParser formatter = new DocumentParser(parserMode);
             DocumentParser.DocumentContent documentContent = formatter.prepareDocumentContent(content);
             document = DocumentFactory.createIeDocument(content, documentContent.getText());
-            documentContent.getTags().forEach(t -> {
+            DocumentParser.TagStore tags = documentContent.getTagStore();
+            for (int t = 0; t < tags.size(); t++) {
+                String name = tags.getName(t);
+                int begin = tags.getBegin(t);
+                int end = tags.getEnd(t);
                 Tag.Descriptor tagDescriptor = Tag.descriptor()
-                        .setBegin(t.getBegin())
-                        .setEnd(t.getEnd())
-                        .setName(t.getName());
-                t.getAttr().entrySet().forEach(e -> {
-                            tagDescriptor.setAttribute(e.getKey(), e.getValue());
-                        }
-                );
+                        .setBegin(begin)
+                        .setEnd(end)
+                        .setName(name);
+                for (int a = 0; a < tags.getAttributeCount(t); a++) {
+                    tagDescriptor.setAttribute(tags.getAttributeName(t, a), tags.getAttributeValue(t, a));
+                }
                 document.add(tagDescriptor);
 
-                if (t.getName().equalsIgnoreCase("table")) {
+                if (name.equalsIgnoreCase("table")) {
                     document.add(Table.descriptor()
-                            .setBegin(t.getBegin())
-                            .setEnd(t.getEnd())
+                            .setBegin(begin)
+                            .setEnd(end)
                     );
-                } else if (t.getName().equalsIgnoreCase("tr")) {
+                } else if (name.equalsIgnoreCase("tr")) {
                     document.add(Row.descriptor()
-                            .setBegin(t.getBegin())
-                            .setEnd(t.getEnd())
-                            .setRowIndex(Integer.parseInt(t.getAttr().get(DocumentParser.ROW_INDEX_ATTR)))
+                            .setBegin(begin)
+                            .setEnd(end)
+                            .setRowIndex(Integer.parseInt(tags.getAttribute(t, DocumentParser.ROW_INDEX_ATTR)))
                     );
-                } else if (t.getName().equalsIgnoreCase("th") || t.getName().equalsIgnoreCase("td")) {
+                } else if (name.equalsIgnoreCase("th") || name.equalsIgnoreCase("td")) {
                     document.add(Cell.descriptor()
-                            .setBegin(t.getBegin())
-                            .setEnd(t.getEnd())
-                            .setRowIndex(Integer.parseInt(t.getAttr().get(DocumentParser.ROW_INDEX_ATTR)))
-                            .setColumnIndex(Integer.parseInt(t.getAttr().get(DocumentParser.COLUMN_INDEX_ATTR)))
+                            .setBegin(begin)
+                            .setEnd(end)
+                            .setRowIndex(Integer.parseInt(tags.getAttribute(t, DocumentParser.ROW_INDEX_ATTR)))
+                            .setColumnIndex(Integer.parseInt(tags.getAttribute(t, DocumentParser.COLUMN_INDEX_ATTR)))
                     );
-                } else if (t.getName().equalsIgnoreCase("line")) {
+                } else if (name.equalsIgnoreCase("line")) {
                     document.add(Line.descriptor()
-                            .setBegin(t.getBegin())
-                            .setEnd(t.getEnd())
-                            .setLineIndex(Integer.parseInt(t.getAttr().get(DocumentParser.LINE_INDEX_ATTR)))
+                            .setBegin(begin)
+                            .setEnd(end)
+                            .setLineIndex(Integer.parseInt(tags.getAttribute(t, DocumentParser.LINE_INDEX_ATTR)))
                     );
                 }
-            });
+            }
 
         } else {
             document = DocumentFactory.createIeDocument(content, content);
@@ -335,27 +382,115 @@ public class BaseLessonTest {
     }
 
     /**
-     * Adds Fields into document based on gold tagging.
+     * Helper method: Creates ML-SDK documents from all files of a directory or matching a glob, e.g.
+     * {@link #TRAIN_INPUT_DIR_PATH} or {@code "data/train/*.html"}. Uses one loading thread per available core.
+     *
+     * @param directoryOrGlob - the directory path or the glob pattern
+     * @return ML-SDK documents in file path order
+     * @throws IOException if a file can't be read
      */
-    protected void addFields(Document document, String... fields) {
-        List<String> ids = Arrays.asList(fields);
-        Collection<Tag> tags = document.findAll(Tag.class);
-        tags.stream().forEach(t -> {
-                    if (ids.contains(t.getName())) {
-                        Field.Descriptor tagDescriptor = Field.descriptor()
-                                .setBegin(t.getBegin())
-                                .setEnd(t.getEnd())
-                                .setName(t.getName())
-                                .setScore(0.5)
-                                .setValue(t.getText());
-                        t.getAttributes().entrySet().forEach(e -> {
-                                    tagDescriptor.setAttribute(e.getKey(), e.getValue());
-                                }
-                        );
-                        document.add(tagDescriptor);
+    protected List<IeDocument> getDocuments(String directoryOrGlob) throws IOException {
+        return getDocuments(directoryOrGlob, DocumentParser.Mode.DOM, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Helper method: Creates ML-SDK documents from all files of a directory or matching a glob in parallel.
+     * <p>
+     * At most {@code parallelism} documents are loaded at a time and at most as many more are queued, submission blocks
+     * until a slot is free, so the raw content of a large directory is never read ahead. The loading time of each file
+     * is logged.
+     *
+     * @param directoryOrGlob - the directory path or the glob pattern
+     * @param parserMode      - the HTML parsing strategy to use for HTML documents
+     * @param parallelism     - the number of loading threads
+     * @return ML-SDK documents in file path order
+     * @throws IOException if a file can't be read
+     */
+    protected List<IeDocument> getDocuments(String directoryOrGlob, DocumentParser.Mode parserMode, int parallelism) throws IOException {
+        List<Path> paths = listDocuments(directoryOrGlob);
+        log("Loading {0} documents from {1} on {2} threads ...", paths.size(), directoryOrGlob, parallelism);
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore slots = new Semaphore(parallelism * 2);
+        List<Future<IeDocument>> futures = new ArrayList<>(paths.size());
+        try {
+            for (Path path : paths) {
+                slots.acquire();
+                futures.add(executor.submit(() -> {
+                    try {
+                        long fileStart = System.nanoTime();
+                        IeDocument document = getDocument(path.toString(), parserMode);
+                        lessonLogger.trace("Loaded document {0} in {1} ms", path, (System.nanoTime() - fileStart) / 1_000_000);
+                        return document;
+                    } finally {
+                        slots.release();
                     }
-                }
-        );
+                }));
+            }
+            List<IeDocument> documents = new ArrayList<>(futures.size());
+            for (Future<IeDocument> future : futures) {
+                documents.add(future.get());
+            }
+            log("Loaded {0} documents in {1} ms", documents.size(), (System.nanoTime() - start) / 1_000_000);
+            return documents;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading documents from " + directoryOrGlob, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Can't load documents from " + directoryOrGlob, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists the regular files of a directory or the files matching a glob, sorted by path.
+     */
+    private List<Path> listDocuments(String directoryOrGlob) throws IOException {
+        Path directory = Paths.get(directoryOrGlob);
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+        }
+        // Walk from the deepest directory that precedes the first glob character
+        int wildcard = 0;
+        while (wildcard < directoryOrGlob.length() && "*?[{".indexOf(directoryOrGlob.charAt(wildcard)) < 0) {
+            wildcard++;
+        }
+        int separator = Math.max(directoryOrGlob.lastIndexOf('/', wildcard), directoryOrGlob.lastIndexOf('\\', wildcard));
+        Path base = Paths.get(separator < 0 ? "." : directoryOrGlob.substring(0, separator + 1));
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + directoryOrGlob);
+        try (Stream<Path> files = Files.walk(base)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(separator < 0 ? base.relativize(p) : p))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Adds Fields into document based on gold tagging.
+     *
+     * @return the number of fields added per field name
+     */
+    protected Map<String, Integer> addFields(Document document, String... fields) {
+        return new GoldFieldProjector(fields).project(document);
+    }
+
+    /**
+     * Adds Fields into the documents based on gold tagging, processing the documents on several threads.
+     *
+     * @return the total number of fields added per field name
+     */
+    protected Map<String, Integer> addFields(Collection<? extends Document> documents, int parallelism, String... fields) {
+        Map<String, Integer> counts = new GoldFieldProjector(fields).project(documents, parallelism);
+        log("Added gold fields to {0} documents: {1}", documents.size(), counts);
+        return counts;
     }
 
     /**
@@ -365,36 +500,61 @@ public class BaseLessonTest {
      * @param params  the list of objects to output
      */
     protected void log(String message, Object... params) {
-        logger.info(new MessageFormat(message).format(params));
+        lessonLogger.info(message, params);
+    }
+
+    /**
+     * Helper method: Outputs a message without parameters into console
+     */
+    protected void log(String message) {
+        lessonLogger.info(message);
+    }
+
+    /**
+     * Helper method: Outputs a formatted message with one parameter into console
+     */
+    protected void log(String message, Object param) {
+        lessonLogger.info(message, param);
+    }
+
+    /**
+     * Helper method: Outputs a formatted message with two parameters into console
+     */
+    protected void log(String message, Object param0, Object param1) {
+        lessonLogger.info(message, param0, param1);
+    }
+
+    /**
+     * Helper method: Outputs a per-element formatted message into console, unless the quiet mode is on.
+     *
+     * @see LessonLogger#setQuiet(boolean)
+     */
+    protected void trace(String message, Object... params) {
+        lessonLogger.trace(message, params);
     }
 
     /**
      * Helper method: Checks the provided elements with the pattern
      *
-     * @param elements    the element list
+     * @param elements    the element list, ordered by begin offset like the pattern
      * @param patternFile the pattern JSON file to load and check
      */
     protected void checkElements(List<? extends Element> elements, String patternFile) throws IOException {
         log("Checking provided document elements ...");
 
-        // Loads token check patterns
-        List<TestElement> expected = (List<TestElement>) JsonSerializationUtil.readObject(this.getClass()
-                .getResourceAsStream(patternFile));
-
-        for (int i = 0; i < Math.min(elements.size(), expected.size()); i++) {
-            TestElement expectedElement = expected.get(i);
-            TestElement actualElement = TestElementFactory.createElement(elements.get(i));
-            log("Element:{0}", i);
-            log("\tExpected element:");
-            logger.info("\t\t"+expectedElement.toString());
-            log("\tActual element:");
-            logger.info("\t\t"+actualElement.toString());
-
-            assertThat(expectedElement).isEqualTo(actualElement);
-
-         }
-        log("Checking number of provided elements size: {0} <-- {1}", elements.size(), expected.size());
-        assertThat(elements.size()).isEqualTo(expected.size());
+        // Streams the check pattern and merges it with the elements by span
+        InputStream golden = this.getClass().getResourceAsStream(patternFile);
+        if (golden == null) {
+            throw new FileNotFoundException("Pattern file is not found: " + patternFile);
+        }
+        GoldenFileVerifier.Report report = GoldenFileVerifier.verify(elements, golden);
+        for (GoldenFileVerifier.Diff diff : report.getDiffs()) {
+            lessonLogger.trace("\t{0}", diff);
+        }
+        log("Checking provided elements: {0}", report);
+        assertThat(report.getDiffs()).as(report.toString()).isEmpty();
+        log("Checking number of provided elements size: {0} <-- {1}", elements.size(), report.getExpectedCount());
+        assertThat(elements.size()).isEqualTo(report.getExpectedCount());
     }
 
     /**
@@ -416,41 +576,25 @@ public class BaseLessonTest {
             TestTokenFeatures expectedElementFeature = expectedFeatures.get(i);
             TestTokenFeatures actualElementFeature = actualFeatures.get(i);
 
-            if (expectedElementFeature.getFeatures().size() != actualElementFeature.getFeatures().size() || expectedElementFeature.getFeatures().size() != 0) {
-                logger.info("\t"+actualElementFeature.getElement().toString());
-                log("\t\tChecking token features.");
-                log("\t\tExpected features:");
-                expectedElementFeature.getFeatures().forEach(f->{
-                    log("\t\t\tFeature name: \"{0}\", value: \"{1}\"",
-                            f.getName(),
-                            f.getValue());
-                });
-                log("\t\tActual features:");
-                actualElementFeature.getFeatures().forEach(f->{
-                    log("\t\t\tFeature name: \"{0}\", value: \"{1}\"",
-                            f.getName(),
-                            f.getValue());
-                });
-
-                assertArrayEquals(expectedElementFeature.getFeatures().stream()
-                                .sorted(Comparator.comparing(Feature::getName))
-                                .mapToDouble(Feature::getValue)
-                                .toArray(),
-                        actualElementFeature.getFeatures().stream()
-                                .sorted(Comparator.comparing(Feature::getName))
-                                .mapToDouble(Feature::getValue)
-                                .toArray(), 0.1);
-
-                assertThat(expectedElementFeature.getFeatures().stream()
-                                .sorted(Comparator.comparing(Feature::getName))
-                                .map(Feature::getName)
-                                .collect(Collectors.toList()))
-                        .containsExactlyElementsOf(actualElementFeature.getFeatures().stream()
-                                .sorted(Comparator.comparing(Feature::getName))
-                                .map(Feature::getName)
-                                .collect(Collectors.toList()));
+            SparseFeatureVector expectedVector = expectedElementFeature.getVector();
+            SparseFeatureVector actualVector = actualElementFeature.getVector();
+            if (lessonLogger.isTraceEnabled() && (expectedVector.size() != 0 || actualVector.size() != 0)) {
+                lessonLogger.trace("\t{0}", actualElementFeature.getElement());
+                lessonLogger.trace("\t\tChecking token features.");
+                lessonLogger.trace("\t\tExpected features:");
+                for (int f = 0; f < expectedVector.size(); f++) {
+                    lessonLogger.trace("\t\t\tFeature name: \"{0}\", value: \"{1}\"", expectedVector.getName(f), expectedVector.getValue(f));
+                }
+                lessonLogger.trace("\t\tActual features:");
+                for (int f = 0; f < actualVector.size(); f++) {
+                    lessonLogger.trace("\t\t\tFeature name: \"{0}\", value: \"{1}\"", actualVector.getName(f), actualVector.getValue(f));
+                }
             }
 
+            // Both vectors are sorted by global feature ids, so equal feature names line up
+            assertThat(actualVector.matches(expectedVector, 0.1))
+                    .as("Features of %s: expected %s, actual %s", actualElementFeature.getElement(), expectedVector, actualVector)
+                    .isTrue();
         }
     }
 
@@ -638,19 +782,14 @@ public class BaseLessonTest {
             }
         }
         log("\tExtract features");
+        SparseFeatureVector.Builder features = new SparseFeatureVector.Builder();
         for (Token token : tokens) {
             if (restrictTokenAccess) {
                 tokenText.add(token.getText());
                 FieldUtils.writeField(token, "text", "NO ACCESS", true);
             }
-            Set<Feature> tokenFeatures = new HashSet<>();
-            for (FeatureExtractor fe : fes) {
-                tokenFeatures.addAll(fe.extract(processDocument, token));
-            }
-            TestTokenFeatures testTokenFeatures = new TestTokenFeatures();
-            testTokenFeatures.setElement(TestElementFactory.createElement(token));
-            testTokenFeatures.setFeatures(tokenFeatures);
-            resultFeatures.add(testTokenFeatures);
+            // Restricted tokens all have the same text, so their features can't be cached
+            resultFeatures.add(extractFeatures(processDocument, token, fes, features, restrictTokenAccess ? null : featureCache));
         }
         // Return text back for Token's
         if (restrictTokenAccess) {
@@ -659,6 +798,10 @@ public class BaseLessonTest {
             }
         }
 
+        if (featureCache != null && !restrictTokenAccess) {
+            log("\t{0}", featureCache.getStats());
+        }
+
         log("Feature extractors completion ...");
         for (FeatureExtractor fe : fes) {
 
@@ -672,6 +815,128 @@ public class BaseLessonTest {
         return resultFeatures;
     }
 
+    /**
+     * Helper method: process FE list for the document on several threads.
+     * <p>
+     * The tokens are split into chunks taken in turn by the worker threads. Each worker creates its own FE instances
+     * from the factories and runs their whole lifecycle, so the FEs need not be thread-safe, but the document is read
+     * concurrently. The result is in token order and equal to {@link #processFeatures(Document, List)}.
+     *
+     * @param document    the document to process
+     * @param feFactories the factories of the feature extractors to process
+     * @param parallelism the number of worker threads
+     * @return the features map to check
+     */
+    protected List<TestTokenFeatures> processFeaturesParallel(Document document,
+            List<Supplier<? extends FeatureExtractor>> feFactories,
+            int parallelism) {
+        List<Token> tokens = new ArrayList<>(document.findAll(Token.class));
+        int chunkSize = Math.max(FEATURE_CHUNK_MIN_SIZE, tokens.size() / (parallelism * 8) + 1);
+        int chunks = (tokens.size() + chunkSize - 1) / chunkSize;
+        int workers = Math.max(1, Math.min(parallelism, chunks));
+        log("Applying {0} feature extractors to {1} Tokens on {2} threads.", feFactories.size(), tokens.size(), workers);
+
+        TestTokenFeatures[] resultFeatures = new TestTokenFeatures[tokens.size()];
+        AtomicInteger nextChunk = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    List<FeatureExtractor> fes = new ArrayList<>();
+                    DefaultCacheBuilder indexBuilder = new DefaultCacheBuilder();
+                    try {
+                        for (Supplier<? extends FeatureExtractor> factory : feFactories) {
+                            FeatureExtractor fe = factory.get();
+                            LifecycleEventExecutor.getInstance().executeInit(fe, Collections.emptyMap(), indexBuilder, Token.class);
+                            fes.add(fe);
+                            LifecycleEventExecutor.getInstance().executeOnDocumentStart(fe, document, Token.class);
+                        }
+                        SparseFeatureVector.Builder features = new SparseFeatureVector.Builder();
+                        int chunk;
+                        while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                            int end = Math.min(tokens.size(), (chunk + 1) * chunkSize);
+                            for (int i = chunk * chunkSize; i < end; i++) {
+                                resultFeatures[i] = extractFeatures(document, tokens.get(i), fes, features, featureCache);
+                            }
+                        }
+                        for (FeatureExtractor fe : fes) {
+                            LifecycleEventExecutor.getInstance().executeOnDocumentComplete(fe, Collections.emptyMap());
+                        }
+                    } finally {
+                        for (FeatureExtractor fe : fes) {
+                            LifecycleEventExecutor.getInstance().executeDestroy(fe, Collections.emptyMap());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while extracting features", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Feature extractor failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (featureCache != null) {
+            log("\t{0}", featureCache.getStats());
+        }
+        return Arrays.asList(resultFeatures);
+    }
+
+    /**
+     * Returns the cache of context-free FE features, null if caching is disabled.
+     */
+    protected FeatureCache getFeatureCache() {
+        return featureCache;
+    }
+
+    /**
+     * Enables caching of the features of {@link ContextFree} FEs by token text in processFeatures. The cache may be
+     * shared by several tests to reuse the features across documents and runs.
+     *
+     * @param featureCache the cache to use, null to disable caching
+     */
+    protected void setFeatureCache(FeatureCache featureCache) {
+        this.featureCache = featureCache;
+    }
+
+    /**
+     * Applies all FEs to the token.
+     *
+     * @param features the reusable builder of the feature vector, cleared when done
+     * @param cache    the cache of context-free FE features, or null
+     */
+    private TestTokenFeatures extractFeatures(Document document, Token token, List<FeatureExtractor> fes,
+            SparseFeatureVector.Builder features, FeatureCache cache) {
+        for (FeatureExtractor fe : fes) {
+            if (cache != null && cache.isCacheable(fe)) {
+                for (Feature feature : cache.get(fe, token.getText(), () -> extract(fe, document, token))) {
+                    features.add(feature);
+                }
+            } else {
+                features.addAll(extract(fe, document, token));
+            }
+        }
+        TestTokenFeatures testTokenFeatures = new TestTokenFeatures();
+        testTokenFeatures.setElement(TestElementFactory.createElement(token));
+        testTokenFeatures.setVector(features.build());
+        return testTokenFeatures;
+    }
+
+    private Collection<Feature> extract(FeatureExtractor fe, Document document, Token token) {
+        ComponentMetrics.Probe probe = ComponentMetrics.start();
+        Collection<Feature> features = fe.extract(document, token);
+        ComponentMetrics.stop(probe, fe);
+        return features;
+    }
+
 
     /**
      * Helper method: process annotators list for the document
@@ -700,7 +965,9 @@ public class BaseLessonTest {
         log("Applying annotators to the document.");
         for (Annotator annotator : annotators) {
             log("\t{0}:process", annotator.getClass().getName());
+            ComponentMetrics.Probe probe = ComponentMetrics.start();
             annotator.process(document);
+            ComponentMetrics.stop(probe, annotator);
         }
 
         log("Annotators completion ...");
@@ -710,6 +977,59 @@ public class BaseLessonTest {
         }
     }
 
+    /**
+     * Helper method: re-annotates an edited plain text document, processing only the sentences around the edit. See
+     * {@link IncrementalAnnotator}.
+     *
+     * @param previous   the document processed by the same annotators
+     * @param edit       the edit of the previous document text
+     * @param annotators the annotators list to process
+     * @return a new document with the edited text, its Tokens, Sentences and NamedEntities
+     */
+    protected IeDocument reprocessAnnotators(Document previous, IncrementalAnnotator.Edit edit, Annotator... annotators) {
+        List<Annotator> annotatorList = Arrays.asList(annotators);
+        for (Annotator annotator : annotatorList) {
+            LifecycleEventExecutor.getInstance().executeInit(annotator, Collections.emptyMap());
+        }
+        try {
+            IncrementalAnnotator incremental = new IncrementalAnnotator(annotatorList);
+            IncrementalAnnotator.Window window = incremental.findWindow(previous, edit);
+            log("Re-annotating window {0} of {1} chars for the edit.", window, previous.getText().length());
+            return incremental.reprocess(previous, edit, window);
+        } finally {
+            for (Annotator annotator : annotatorList) {
+                LifecycleEventExecutor.getInstance().executeDestroy(annotator, Collections.emptyMap());
+            }
+        }
+    }
+
+    /**
+     * Helper method: processes a plain text file of any size in windows of at most the provided number of chars. See
+     * {@link ChunkedDocumentProcessor}.
+     *
+     * @param documentPath  the plain text file path
+     * @param maxWindowSize the maximum number of chars processed at once
+     * @param handler       the receiver of the Tokens, Sentences and NamedEntities with offsets in the whole text
+     * @param annotators    the annotators list to process
+     * @return the length of the document text
+     * @throws IOException if the file cannot be read
+     */
+    protected long processAnnotatorsChunked(String documentPath, int maxWindowSize,
+            ChunkedDocumentProcessor.ElementHandler handler, Annotator... annotators) throws IOException {
+        log("Processing document {0} in windows of {1} chars ...", documentPath, maxWindowSize);
+        List<Annotator> annotatorList = Arrays.asList(annotators);
+        for (Annotator annotator : annotatorList) {
+            LifecycleEventExecutor.getInstance().executeInit(annotator, Collections.emptyMap());
+        }
+        try {
+            return new ChunkedDocumentProcessor(annotatorList, maxWindowSize).process(Paths.get(documentPath), handler);
+        } finally {
+            for (Annotator annotator : annotatorList) {
+                LifecycleEventExecutor.getInstance().executeDestroy(annotator, Collections.emptyMap());
+            }
+        }
+    }
+
     /**
      * Checks that Tokens have been provided by annotators.
      */
@@ -745,7 +1065,9 @@ public class BaseLessonTest {
         log("Applying processor to the document.");
         for (Processor processor : processors) {
             log("\t{0}:process", processor.getClass().getName());
+            ComponentMetrics.Probe probe = ComponentMetrics.start();
             processor.process(document);
+            ComponentMetrics.stop(probe, processor);
         }
 
         log("Processor completion ...");
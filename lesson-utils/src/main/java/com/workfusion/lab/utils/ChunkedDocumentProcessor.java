@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
+import com.workfusion.vds.sdk.api.nlp.model.Sentence;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+/**
+ * Runs annotators over plain text of any size in windows of at most a fixed number of chars.
+ * <p>
+ * The text is streamed into a window buffer that is processed as a document of its own. The window is cut after the
+ * last {@link Sentence} whose delimiter is followed by white space and the next word inside the window and that no
+ * {@link Token} or {@link NamedEntity} crosses; the elements before the cut are reported with offsets in the whole
+ * text, the rest of the window is moved to the front of the buffer and processed again with the next chars. Whether
+ * a delimiter ends a sentence depends on the word before it and, for abbreviations that are also words
+ * ({@code No. 5}), on the first character of the next word. With both inside the window, the delimiter splits the
+ * text the same way with and without the text around it, so the elements are the ones {@code getDocument} and the
+ * annotators would produce for the whole text. A window without such a sentence, one holding a sentence longer than
+ * the window, is cut at its last white space, splitting the sentence, or at its end if it has no white space at all,
+ * splitting the token.
+ * <p>
+ * Memory use depends on the window size only: the window text, its document and elements are dropped once the
+ * elements have been reported. The annotators are not initialized or destroyed here.
+ * <pre>
+ * ChunkedDocumentProcessor processor = new ChunkedDocumentProcessor(annotators, 1 &lt;&lt; 20);
+ * long length = processor.process(path, (element, begin, end) -&gt; index.add(element.getClass(), begin, end));
+ * </pre>
+ */
+@SuppressWarnings("unchecked")
+public final class ChunkedDocumentProcessor {
+
+    /**
+     * Element types reported, in the order they are reported for each window.
+     */
+    private static final List<Class<? extends Element>> REPORTED_TYPES = Arrays.asList(Token.class, Sentence.class, NamedEntity.class);
+
+    /**
+     * Receives the elements of the text.
+     */
+    public interface ElementHandler {
+
+        /**
+         * Called for each element, ordered by begin offset within each window and element type.
+         *
+         * @param element the element of the window document, valid during the call only
+         * @param begin   the begin offset of the element in the whole text
+         * @param end     the end offset of the element in the whole text (exclusive)
+         */
+        void onElement(Element element, long begin, long end);
+    }
+
+    private final List<Annotator> annotators;
+    private final int maxWindowSize;
+
+    /**
+     * @param annotators    the initialized annotators to run on each window
+     * @param maxWindowSize the maximum number of chars processed at once
+     */
+    public ChunkedDocumentProcessor(List<Annotator> annotators, int maxWindowSize) {
+        if (maxWindowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2: " + maxWindowSize);
+        }
+        this.annotators = new ArrayList<>(annotators);
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Processes the UTF-8 file with line endings normalized as by {@link NormalizedText}, the text of
+     * {@code getDocument} for plain text files.
+     *
+     * @return the length of the normalized text
+     */
+    public long process(Path path, ElementHandler handler) throws IOException {
+        try (Reader reader = NormalizedText.newReader(path)) {
+            return process(reader, handler);
+        }
+    }
+
+    /**
+     * Processes the text of the reader as it is.
+     *
+     * @return the length of the text
+     */
+    public long process(Reader reader, ElementHandler handler) throws IOException {
+        char[] window = new char[maxWindowSize];
+        int filled = 0;
+        long windowOffset = 0;
+        boolean endOfInput = false;
+        while (!endOfInput || filled > 0) {
+            while (!endOfInput && filled < window.length) {
+                int read = reader.read(window, filled, window.length - filled);
+                if (read < 0) {
+                    endOfInput = true;
+                } else {
+                    filled += read;
+                }
+            }
+            String text = new String(window, 0, filled);
+            IeDocument document = DocumentFactory.createIeDocument(text, text);
+            for (Annotator annotator : annotators) {
+                annotator.process(document);
+            }
+
+            int cut = endOfInput ? filled : findCut(document, text);
+            for (Class<? extends Element> type : REPORTED_TYPES) {
+                for (Element element : ElementIndex.of(document, type).getElements()) {
+                    if (element.getBegin() >= cut) {
+                        break;
+                    }
+                    // Only a sentence split by a cut at white space crosses the cut
+                    handler.onElement(element, windowOffset + element.getBegin(), windowOffset + Math.min(element.getEnd(), cut));
+                }
+            }
+
+            System.arraycopy(window, cut, window, 0, filled - cut);
+            filled -= cut;
+            windowOffset += cut;
+        }
+        return windowOffset;
+    }
+
+    /**
+     * Returns the offset the elements of a full window are reported up to, the begin of the next window.
+     */
+    private static int findCut(Document document, String text) {
+        List<ElementIndex<? extends Element>> crossing = new ArrayList<>();
+        crossing.add(ElementIndex.of(document, Token.class));
+        crossing.add(ElementIndex.of(document, NamedEntity.class));
+
+        List<Sentence> sentences = ElementIndex.of(document, Sentence.class).getElements();
+        for (int s = sentences.size() - 1; s >= 0; s--) {
+            // The cut is at the white space after the delimiter, where the next sentence begins, and the next word must
+            // be in the window to tell whether the delimiter ends the sentence
+            int cut = sentences.get(s).getEnd() + 1;
+            if (cut < text.length() && Character.isWhitespace(text.charAt(cut)) && !isCrossed(crossing, cut)
+                    && skipWhitespace(text, cut) < text.length()) {
+                return cut;
+            }
+        }
+        for (int cut = text.length() - 1; cut > 0; cut--) {
+            if (Character.isWhitespace(text.charAt(cut)) && !isCrossed(crossing, cut)) {
+                return cut;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Returns the offset of the first character that is not white space from the offset on, the text length if none.
+     */
+    private static int skipWhitespace(String text, int offset) {
+        while (offset < text.length() && Character.isWhitespace(text.charAt(offset))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    private static boolean isCrossed(List<ElementIndex<? extends Element>> indexes, int offset) {
+        for (ElementIndex<? extends Element> index : indexes) {
+            for (Element element : index.findCovering(offset, offset)) {
+                if (element.getBegin() < offset && element.getEnd() > offset) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
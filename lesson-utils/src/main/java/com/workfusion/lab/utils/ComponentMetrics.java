@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Per-component latency and allocation metrics of the pipeline helpers.
+ * <p>
+ * Each call of an annotator, feature extractor or processor records its wall time, its thread CPU time and the bytes
+ * its thread allocated, read from {@link ThreadMXBean}, into lock-free {@link ConcurrentHistogram}s keyed by the
+ * component class name. Metrics are disabled by default, enable them with {@link #setEnabled(boolean)} or the
+ * {@code lesson.metrics} system property. When disabled, {@link #start()} is a single volatile read.
+ * <pre>
+ * ComponentMetrics.Probe probe = ComponentMetrics.start();
+ * annotator.process(document);
+ * ComponentMetrics.stop(probe, annotator);
+ * </pre>
+ */
+public final class ComponentMetrics {
+
+    private static final LessonLogger logger = new LessonLogger(LogFactory.getLog("TRAINING"));
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREADS.isCurrentThreadCpuTimeSupported();
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+    private static final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = Boolean.getBoolean("lesson.metrics");
+
+    private ComponentMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        ComponentMetrics.enabled = enabled;
+    }
+
+    /**
+     * Starts measuring a call on the current thread.
+     *
+     * @return the probe to pass to {@link #stop(Probe, Object)}, null when metrics are disabled
+     */
+    public static Probe start() {
+        return enabled ? new Probe() : null;
+    }
+
+    /**
+     * Records the call measured by the probe for the component. Does nothing for a null probe.
+     */
+    public static void stop(Probe probe, Object component) {
+        if (probe == null) {
+            return;
+        }
+        long wallTime = System.nanoTime() - probe.wallStart;
+        long cpuTime = probe.cpuStart < 0 ? -1 : THREADS.getCurrentThreadCpuTime() - probe.cpuStart;
+        long allocated = probe.allocatedStart < 0 ? -1 : currentThreadAllocatedBytes() - probe.allocatedStart;
+        String name = component.getClass().getName();
+        Recorder recorder = recorders.get(name);
+        if (recorder == null) {
+            recorder = recorders.computeIfAbsent(name, n -> new Recorder());
+        }
+        recorder.wallTime.record(wallTime);
+        recorder.cpuTime.record(cpuTime);
+        recorder.allocatedBytes.record(allocated);
+    }
+
+    /**
+     * Returns the metrics recorded so far by component class name.
+     */
+    public static Map<String, ComponentSnapshot> snapshot() {
+        Map<String, ComponentSnapshot> snapshot = new TreeMap<>();
+        recorders.forEach((name, recorder) -> snapshot.put(name, new ComponentSnapshot(
+                recorder.wallTime.snapshot(),
+                recorder.cpuTime.snapshot(),
+                recorder.allocatedBytes.snapshot())));
+        return snapshot;
+    }
+
+    /**
+     * Returns {@link #snapshot()} as JSON.
+     */
+    public static String toJson() {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(snapshot());
+    }
+
+    /**
+     * Drops all recorded metrics.
+     */
+    public static void reset() {
+        recorders.clear();
+    }
+
+    /**
+     * Writes the JSON snapshot to the file periodically from a daemon thread, replacing the file atomically. A failed
+     * periodic write is logged and the next one is still attempted.
+     *
+     * @return the handle that stops the dump and writes the final snapshot when closed, failing if that write fails
+     */
+    public static AutoCloseable scheduleJsonDump(Path file, long period, TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "component-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                writeJson(file);
+            } catch (UncheckedIOException e) {
+                logger.warn("Can''t write metrics: {0}", e.getCause());
+            }
+        }, period, period, unit);
+        return () -> {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            writeJson(file);
+        };
+    }
+
+    private static void writeJson(Path file) {
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, toJson().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't write metrics to " + file, e);
+        }
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREADS;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Start values of one measured call. CPU time and allocated bytes are -1 when the JVM does not provide them.
+     */
+    public static final class Probe {
+
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocatedStart;
+
+        private Probe() {
+            this.allocatedStart = ALLOCATIONS != null ? currentThreadAllocatedBytes() : -1;
+            this.cpuStart = CPU_TIME_SUPPORTED ? THREADS.getCurrentThreadCpuTime() : -1;
+            this.wallStart = System.nanoTime();
+        }
+    }
+
+    private static final class Recorder {
+
+        private final ConcurrentHistogram wallTime = new ConcurrentHistogram();
+        private final ConcurrentHistogram cpuTime = new ConcurrentHistogram();
+        private final ConcurrentHistogram allocatedBytes = new ConcurrentHistogram();
+    }
+
+    /**
+     * Metrics of one component.
+     */
+    public static final class ComponentSnapshot {
+
+        private final HistogramSnapshot wallTimeNanos;
+        private final HistogramSnapshot cpuTimeNanos;
+        private final HistogramSnapshot allocatedBytes;
+
+        ComponentSnapshot(HistogramSnapshot wallTimeNanos, HistogramSnapshot cpuTimeNanos, HistogramSnapshot allocatedBytes) {
+            this.wallTimeNanos = wallTimeNanos;
+            this.cpuTimeNanos = cpuTimeNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public HistogramSnapshot getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        public HistogramSnapshot getCpuTimeNanos() {
+            return cpuTimeNanos;
+        }
+
+        public HistogramSnapshot getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    /**
+     * Distribution of one metric. Percentiles are accurate to 1/16 of the value.
+     */
+    public static final class HistogramSnapshot {
+
+        private final long count;
+        private final long total;
+        private final long max;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+
+        HistogramSnapshot(long count, long total, long max, long p50, long p90, long p99) {
+            this.count = count;
+            this.total = total;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+    }
+
+}
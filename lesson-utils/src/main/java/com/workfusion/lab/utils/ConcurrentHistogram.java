@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values with HdrHistogram-style log-linear buckets.
+ * <p>
+ * Values below 32 have a bucket each, larger values are split into 16 buckets per power of two, so every recorded
+ * value is reported within 1/16 (6.25%) of its magnitude. Recording is a few atomic increments and never blocks,
+ * snapshots may be taken concurrently and see each value either fully recorded or not at all per counter.
+ */
+final class ConcurrentHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        counts.incrementAndGet(bucket(value));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    ComponentMetrics.HistogramSnapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        long maxValue = max.get();
+        return new ComponentMetrics.HistogramSnapshot(recorded,
+                total.sum(),
+                maxValue,
+                percentile(snapshot, recorded, 0.50, maxValue),
+                percentile(snapshot, recorded, 0.90, maxValue),
+                percentile(snapshot, recorded, 0.99, maxValue));
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - 5) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the highest value that falls into the bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 5;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] counts, long recorded, double percentile, long max) {
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * recorded));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a feature extractor whose features depend only on the token text, not on the document or the neighbouring
+ * elements, so {@link FeatureCache} may reuse them for equal tokens.
+ * <p>
+ * The features of an extractor without instance fields are cached by its class. An extractor with instance fields,
+ * such as a prefix or suffix flag, must define {@code equals()} and {@code hashCode()} over them, so that differently
+ * configured instances do not share entries; {@link FeatureCache} rejects it otherwise.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ContextFree {
+}
@@ -0,0 +1,741 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.workfusion.vds.sdk.api.nlp.model.Cell;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
+import com.workfusion.vds.sdk.api.nlp.model.Field;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.Line;
+import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
+import com.workfusion.vds.sdk.api.nlp.model.Row;
+import com.workfusion.vds.sdk.api.nlp.model.Sentence;
+import com.workfusion.vds.sdk.api.nlp.model.Table;
+import com.workfusion.vds.sdk.api.nlp.model.Tag;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+/**
+ * Append-only corpus file of processed documents, memory-mapped for reading.
+ * <p>
+ * Each document is stored as one record holding its text, its content if it differs from the text, and a table per
+ * element type with one int column per attribute: begins, ends, then the type specific columns. Strings such as
+ * entity types, tag names and attribute values are kept once per record in a string table and referenced by index.
+ * Reading a document maps the record and creates buffer views of its sections, the text is returned as a
+ * {@link CharSequence} over the mapped file and the columns are read in place, so no element is decoded until it is
+ * accessed. {@link StoredDocument#toDocument()} rebuilds an ML-SDK document when one is needed.
+ * <p>
+ * Binary layout (big-endian, records padded to a multiple of 4 bytes):
+ * <pre>
+ * header:  int magic, int version
+ * records: int length, int textLength, int contentLength (-1 if equal to the text), int stringCount,
+ *          int[stringCount + 1] string offsets, then for each type in {@link #STORED_TYPES} order:
+ *          int count, int[count] begins, int[count] ends, the type columns, for tags also
+ *          int attributeCount, int[attributeCount] names, int[attributeCount] values;
+ *          then the text, content and string chars (UTF-16)
+ * </pre>
+ * Type columns are string refs, -1 for null: the type of named entities; the name and the first attribute index of
+ * tags; the name and value of fields. Fields also have the score as the high and low int of its double bits, a NaN
+ * other than the canonical one for null. Cells have the row and column index, rows the row index and lines the line
+ * index. Documents are numbered in append order; the reader finds the records by their lengths when it is opened
+ * and ignores a trailing record left incomplete by an interrupted append.
+ * <pre>
+ * try (CorpusStore.Writer writer = CorpusStore.append(path)) {
+ *     int id = writer.append(document);
+ * }
+ * try (CorpusStore store = CorpusStore.open(path)) {
+ *     CharSequence text = store.get(id).getText();
+ * }
+ * </pre>
+ */
+public final class CorpusStore implements Closeable {
+
+    static final int MAGIC = 0x57464353; // "WFCS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int RECORD_HEADER_SIZE = 4 * Integer.BYTES;
+
+    /**
+     * Element types stored, in the record order.
+     */
+    public static final List<Class<? extends Element>> STORED_TYPES = Collections.unmodifiableList(Arrays.asList(
+            Token.class, Sentence.class, NamedEntity.class, Tag.class, Field.class, Cell.class, Row.class, Line.class,
+            Table.class));
+
+    private static final int TOKEN = 0;
+    private static final int SENTENCE = 1;
+    private static final int NAMED_ENTITY = 2;
+    private static final int TAG = 3;
+    private static final int FIELD = 4;
+    private static final int CELL = 5;
+    private static final int ROW = 6;
+    private static final int LINE = 7;
+    private static final int TABLE = 8;
+
+    /**
+     * Number of type columns after begins and ends, indexed like {@link #STORED_TYPES}.
+     */
+    private static final int[] COLUMN_COUNTS = {0, 0, 1, 2, 4, 2, 1, 1, 0};
+
+    /**
+     * Score bits of a field without a score, a NaN that {@link Double#doubleToLongBits(double)} never returns.
+     */
+    private static final long NO_SCORE = 0x7ff8000000000001L;
+
+    private final FileChannel channel;
+    /**
+     * The whole file if it can be mapped at once, otherwise null and each record is mapped on access.
+     */
+    private final ByteBuffer mapped;
+    private final long[] offsets;
+    private final int size;
+
+    private CorpusStore(FileChannel channel, ByteBuffer mapped, long[] offsets, int size) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * Maps the corpus file for reading.
+     */
+    public static CorpusStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long[] offsets = new long[16];
+            int size = 0;
+            long end = readHeader(channel, path);
+            long position = HEADER_SIZE;
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            while (position < end) {
+                long recordLength = readRecordLength(channel, position, end, length);
+                if (recordLength < 0) {
+                    break;
+                }
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, size * 2);
+                }
+                offsets[size++] = position;
+                position += recordLength;
+            }
+            ByteBuffer mapped = position <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, position)
+                    : null;
+            return new CorpusStore(channel, mapped, Arrays.copyOf(offsets, size), size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the corpus file for appending documents, creating it if it does not exist.
+     */
+    public static Writer append(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    /**
+     * Returns the number of documents.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view of the document with the id, the index in append order.
+     */
+    public StoredDocument get(int id) throws IOException {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Document id: " + id + ", Size: " + size);
+        }
+        long offset = offsets[id];
+        long length = readLength(id);
+        ByteBuffer record;
+        if (mapped != null) {
+            ByteBuffer duplicate = mapped.duplicate();
+            duplicate.position((int) offset).limit((int) (offset + length));
+            record = duplicate.slice();
+        } else {
+            record = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        return new StoredDocument(record);
+    }
+
+    private long readLength(int id) throws IOException {
+        if (mapped != null) {
+            return mapped.getInt((int) offsets[id]);
+        }
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(length, offsets[id]);
+        return length.getInt(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Validates the file header and returns the file size.
+     */
+    private static long readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // reads the whole header
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a corpus file: " + path);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported corpus version " + header.getInt(4) + ": " + path);
+        }
+        return channel.size();
+    }
+
+    /**
+     * Returns the length of the record at the position or -1 if the record is incomplete.
+     */
+    private static long readRecordLength(FileChannel channel, long position, long end, ByteBuffer length) throws IOException {
+        if (end - position < RECORD_HEADER_SIZE) {
+            return -1;
+        }
+        length.clear();
+        channel.read(length, position);
+        int recordLength = length.getInt(0);
+        if (recordLength < RECORD_HEADER_SIZE || recordLength % 4 != 0 || position + recordLength > end) {
+            return -1;
+        }
+        return recordLength;
+    }
+
+    /**
+     * Zero-copy view of a stored document. The view reads the mapped file, it stays valid while the store is open.
+     */
+    public static final class StoredDocument {
+
+        private final ByteBuffer record;
+        private final CharSequence text;
+        private final CharSequence content;
+        private final IntBuffer stringOffsets;
+        private final CharBuffer stringChars;
+        private final String[] strings;
+        private final ElementTable[] tables = new ElementTable[STORED_TYPES.size()];
+
+        StoredDocument(ByteBuffer record) {
+            this.record = record;
+            IntBuffer ints = record.asIntBuffer();
+            int textLength = ints.get(1);
+            int contentLength = ints.get(2);
+            int stringCount = ints.get(3);
+            int position = RECORD_HEADER_SIZE / Integer.BYTES;
+            this.stringOffsets = slice(ints, position, stringCount + 1);
+            position += stringCount + 1;
+            for (int t = 0; t < tables.length; t++) {
+                int count = ints.get(position++);
+                IntBuffer[] columns = new IntBuffer[2 + COLUMN_COUNTS[t]];
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = slice(ints, position, count);
+                    position += count;
+                }
+                IntBuffer attributeNames = null;
+                IntBuffer attributeValues = null;
+                if (t == TAG) {
+                    int attributeCount = ints.get(position++);
+                    attributeNames = slice(ints, position, attributeCount);
+                    position += attributeCount;
+                    attributeValues = slice(ints, position, attributeCount);
+                    position += attributeCount;
+                }
+                tables[t] = new ElementTable(this, t, count, columns, attributeNames, attributeValues);
+            }
+            CharBuffer chars = slice(record, position * Integer.BYTES).asCharBuffer();
+            this.text = slice(chars, 0, textLength);
+            this.content = contentLength < 0 ? text : slice(chars, textLength, contentLength);
+            this.stringChars = slice(chars, textLength + Math.max(contentLength, 0), stringOffsets.get(stringCount));
+            this.strings = new String[stringCount];
+        }
+
+        /**
+         * Returns the text, read from the mapped file on access.
+         */
+        public CharSequence getText() {
+            return text;
+        }
+
+        /**
+         * Returns the content, the HTML for HTML documents, otherwise the text.
+         */
+        public CharSequence getContent() {
+            return content;
+        }
+
+        /**
+         * Returns the size of the record in the file.
+         */
+        public int getStoredSize() {
+            return record.capacity();
+        }
+
+        /**
+         * Returns the table of the type, one of {@link #STORED_TYPES}.
+         */
+        public ElementTable getElements(Class<? extends Element> type) {
+            int index = STORED_TYPES.indexOf(type);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unsupported element type: " + type.getName());
+            }
+            return tables[index];
+        }
+
+        /**
+         * Creates an ML-SDK document with the text, content and all stored elements.
+         */
+        public IeDocument toDocument() {
+            String textString = text.toString();
+            IeDocument document = DocumentFactory.createIeDocument(
+                    content == text ? textString : content.toString(), textString);
+            for (ElementTable table : tables) {
+                for (int i = 0; i < table.size(); i++) {
+                    document.add(table.descriptor(i));
+                }
+            }
+            return document;
+        }
+
+        String getString(int ref) {
+            if (ref < 0) {
+                return null;
+            }
+            String string = strings[ref];
+            if (string == null) {
+                int begin = stringOffsets.get(ref);
+                string = stringChars.subSequence(begin, stringOffsets.get(ref + 1)).toString();
+                strings[ref] = string;
+            }
+            return string;
+        }
+
+        private static IntBuffer slice(IntBuffer buffer, int position, int length) {
+            IntBuffer duplicate = buffer.duplicate();
+            duplicate.position(position).limit(position + length);
+            return duplicate.slice();
+        }
+
+        private static CharBuffer slice(CharBuffer buffer, int position, int length) {
+            CharBuffer duplicate = buffer.duplicate();
+            duplicate.position(position).limit(position + length);
+            return duplicate.slice();
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int position) {
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(position);
+            return duplicate.slice();
+        }
+    }
+
+    /**
+     * Columns of the stored elements of one type, in span order.
+     */
+    public static final class ElementTable {
+
+        private final StoredDocument document;
+        private final int type;
+        private final int size;
+        private final IntBuffer[] columns;
+        private final IntBuffer attributeNames;
+        private final IntBuffer attributeValues;
+
+        ElementTable(StoredDocument document, int type, int size, IntBuffer[] columns, IntBuffer attributeNames,
+                IntBuffer attributeValues) {
+            this.document = document;
+            this.type = type;
+            this.size = size;
+            this.columns = columns;
+            this.attributeNames = attributeNames;
+            this.attributeValues = attributeValues;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getBegin(int index) {
+            return columns[0].get(index);
+        }
+
+        public int getEnd(int index) {
+            return columns[1].get(index);
+        }
+
+        /**
+         * Returns the covered text, a view of the mapped document text.
+         */
+        public CharSequence getText(int index) {
+            return document.getText().subSequence(getBegin(index), getEnd(index));
+        }
+
+        /**
+         * Returns the type of a named entity.
+         */
+        public String getType(int index) {
+            return document.getString(column(index, NAMED_ENTITY, 0));
+        }
+
+        /**
+         * Returns the name of a tag or a field.
+         */
+        public String getName(int index) {
+            return document.getString(column(index, type == TAG ? TAG : FIELD, 0));
+        }
+
+        /**
+         * Returns the value of a field.
+         */
+        public String getValue(int index) {
+            return document.getString(column(index, FIELD, 1));
+        }
+
+        /**
+         * Returns the score of a field, null if it has none.
+         */
+        public Double getScore(int index) {
+            long bits = (long) column(index, FIELD, 2) << 32 | column(index, FIELD, 3) & 0xffffffffL;
+            return bits == NO_SCORE ? null : Double.longBitsToDouble(bits);
+        }
+
+        /**
+         * Returns the attributes of a tag in their stored order.
+         */
+        public Map<String, String> getAttributes(int index) {
+            int begin = column(index, TAG, 1);
+            int end = index + 1 < size ? columns[3].get(index + 1) : attributeNames.limit();
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int a = begin; a < end; a++) {
+                attributes.put(document.getString(attributeNames.get(a)), document.getString(attributeValues.get(a)));
+            }
+            return attributes;
+        }
+
+        /**
+         * Returns the row index of a cell or a row.
+         */
+        public int getRowIndex(int index) {
+            return column(index, type == ROW ? ROW : CELL, 0);
+        }
+
+        /**
+         * Returns the column index of a cell.
+         */
+        public int getColumnIndex(int index) {
+            return column(index, CELL, 1);
+        }
+
+        /**
+         * Returns the line index of a line.
+         */
+        public int getLineIndex(int index) {
+            return column(index, LINE, 0);
+        }
+
+        private int column(int index, int expectedType, int column) {
+            if (type != expectedType) {
+                throw new IllegalStateException(STORED_TYPES.get(type).getSimpleName() + " elements have no such attribute");
+            }
+            return columns[2 + column].get(index);
+        }
+
+        private Element.ElementDescriptor descriptor(int index) {
+            int begin = getBegin(index);
+            int end = getEnd(index);
+            switch (type) {
+                case TOKEN:
+                    return Token.descriptor().setBegin(begin).setEnd(end);
+                case SENTENCE:
+                    return Sentence.descriptor().setBegin(begin).setEnd(end);
+                case NAMED_ENTITY:
+                    return NamedEntity.descriptor().setBegin(begin).setEnd(end).setType(getType(index));
+                case TAG:
+                    Tag.Descriptor tag = Tag.descriptor().setBegin(begin).setEnd(end).setName(getName(index));
+                    getAttributes(index).forEach(tag::setAttribute);
+                    return tag;
+                case FIELD:
+                    Field.Descriptor field = Field.descriptor().setBegin(begin).setEnd(end)
+                            .setName(getName(index))
+                            .setValue(getValue(index));
+                    Double score = getScore(index);
+                    if (score != null) {
+                        field.setScore(score);
+                    }
+                    return field;
+                case CELL:
+                    return Cell.descriptor().setBegin(begin).setEnd(end)
+                            .setRowIndex(getRowIndex(index))
+                            .setColumnIndex(getColumnIndex(index));
+                case ROW:
+                    return Row.descriptor().setBegin(begin).setEnd(end).setRowIndex(getRowIndex(index));
+                case LINE:
+                    return Line.descriptor().setBegin(begin).setEnd(end).setLineIndex(getLineIndex(index));
+                default:
+                    return Table.descriptor().setBegin(begin).setEnd(end);
+            }
+        }
+    }
+
+    /**
+     * Appends documents to a corpus file. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private int size;
+
+        Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            try {
+                long end = channel.size();
+                if (end == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION);
+                    header.flip();
+                    writeFully(header, 0);
+                    end = HEADER_SIZE;
+                } else {
+                    readHeader(channel, path);
+                }
+                // Drops a record left incomplete by an interrupted append
+                long position = HEADER_SIZE;
+                ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+                long recordLength;
+                while ((recordLength = readRecordLength(channel, position, end, length)) >= 0) {
+                    position += recordLength;
+                    size++;
+                }
+                channel.truncate(position);
+                channel.position(position);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Appends the document with its elements of the {@link #STORED_TYPES}.
+         *
+         * @return the id of the document
+         */
+        public int append(Document document) throws IOException {
+            String text = document.getText();
+            String content = document.getContent();
+            boolean separateContent = content != null && !content.equals(text);
+
+            Map<String, Integer> ids = new HashMap<>();
+            List<String> strings = new ArrayList<>();
+            IntList ints = new IntList();
+            ints.add(0); // length, set below
+            ints.add(text.length());
+            ints.add(separateContent ? content.length() : -1);
+            // String table placeholders, the table is complete once all elements are written
+            IntList elements = new IntList();
+            for (int t = 0; t < STORED_TYPES.size(); t++) {
+                List<? extends Element> list = ElementIndex.of(document, STORED_TYPES.get(t)).getElements();
+                elements.add(list.size());
+                for (Element element : list) {
+                    elements.add(element.getBegin());
+                }
+                for (Element element : list) {
+                    elements.add(element.getEnd());
+                }
+                writeColumns(t, list, elements, ids, strings);
+            }
+
+            ints.add(strings.size());
+            int stringChars = 0;
+            ints.add(0);
+            for (String string : strings) {
+                stringChars += string.length();
+                ints.add(stringChars);
+            }
+            ints.addAll(elements);
+
+            int chars = text.length() + (separateContent ? content.length() : 0) + stringChars;
+            long length = (long) ints.size() * Integer.BYTES + ((long) chars * Character.BYTES + 3) / 4 * 4;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Document is too large to store: " + length + " bytes");
+            }
+            ints.set(0, (int) length);
+
+            ByteBuffer record = ByteBuffer.allocate((int) length);
+            record.asIntBuffer().put(ints.values, 0, ints.size());
+            record.position(ints.size() * Integer.BYTES);
+            CharBuffer charView = record.slice().asCharBuffer();
+            charView.put(text);
+            if (separateContent) {
+                charView.put(content);
+            }
+            for (String string : strings) {
+                charView.put(string);
+            }
+            record.clear();
+            writeFully(record, channel.position());
+            channel.position(channel.position() + length);
+            return size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private static void writeColumns(int type, List<? extends Element> list, IntList out, Map<String, Integer> ids,
+                List<String> strings) {
+            switch (type) {
+                case NAMED_ENTITY:
+                    for (Element element : list) {
+                        out.add(ref(((NamedEntity) element).getType(), ids, strings));
+                    }
+                    break;
+                case TAG:
+                    IntList names = new IntList();
+                    IntList values = new IntList();
+                    for (Element element : list) {
+                        out.add(ref(((Tag) element).getName(), ids, strings));
+                    }
+                    for (Element element : list) {
+                        out.add(names.size());
+                        for (Map.Entry<String, String> attribute : ((Tag) element).getAttributes().entrySet()) {
+                            names.add(ref(attribute.getKey(), ids, strings));
+                            values.add(ref(attribute.getValue(), ids, strings));
+                        }
+                    }
+                    out.add(names.size());
+                    out.addAll(names);
+                    out.addAll(values);
+                    break;
+                case FIELD:
+                    for (Element element : list) {
+                        out.add(ref(((Field) element).getName(), ids, strings));
+                    }
+                    for (Element element : list) {
+                        out.add(ref(((Field) element).getValue(), ids, strings));
+                    }
+                    long[] scores = new long[list.size()];
+                    for (int i = 0; i < scores.length; i++) {
+                        BigDecimal score = ((Field) list.get(i)).getScore();
+                        scores[i] = score == null ? NO_SCORE : Double.doubleToLongBits(score.doubleValue());
+                    }
+                    for (long score : scores) {
+                        out.add((int) (score >>> 32));
+                    }
+                    for (long score : scores) {
+                        out.add((int) score);
+                    }
+                    break;
+                case CELL:
+                    for (Element element : list) {
+                        out.add(((Cell) element).getRowIndex());
+                    }
+                    for (Element element : list) {
+                        out.add(((Cell) element).getColumnIndex());
+                    }
+                    break;
+                case ROW:
+                    for (Element element : list) {
+                        out.add(((Row) element).getRowIndex());
+                    }
+                    break;
+                case LINE:
+                    for (Element element : list) {
+                        out.add(((Line) element).getLineIndex());
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private static int ref(String value, Map<String, Integer> ids, List<String> strings) {
+            if (value == null) {
+                return -1;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = strings.size();
+                ids.put(value, id);
+                strings.add(value);
+            }
+            return id;
+        }
+
+        private void writeFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        /**
+         * Forces the appended documents to the storage device.
+         */
+        public void flush() throws IOException {
+            channel.force(false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(IntList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        void set(int index, int value) {
+            values[index] = value;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+}
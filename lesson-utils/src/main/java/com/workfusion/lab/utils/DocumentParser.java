@@ -3,14 +3,20 @@
  */
 package com.workfusion.lab.utils;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.apache.commons.logging.LogFactory;
 import org.jsoup.Jsoup;
 import org.jsoup.helper.StringUtil;
+import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -36,62 +42,295 @@ public class DocumentParser {
     public final static String LINE_INDEX_ATTR = "line-index";
 
     /**
-     * Wrapper class to handle Tag description
+     * HTML parsing strategy.
+     */
+    public enum Mode {
+        /**
+         * Builds the whole jsoup DOM and traverses it.
+         */
+        DOM,
+        /**
+         * Reports tags and text to the formatter while tokenizing, without building the DOM. The result is the same
+         * as with {@link #DOM}: HTML that jsoup builds by moving already parsed nodes, such as a formatting element
+         * closed after a block opened in it or text inside a table outside of the cells, is parsed as DOM instead.
+         * Such documents are parsed twice; they are counted, see {@link #getStreamingFallbackCount()}.
+         */
+        STREAMING
+    }
+
+    /**
+     * Default line width for word wrapping.
+     */
+    public final static int DEFAULT_MAX_WIDTH = 80;
+
+    private static final LessonLogger logger = new LessonLogger(LogFactory.getLog("TRAINING"));
+
+    private static final LongAdder streamedCount = new LongAdder();
+    private static final LongAdder streamingFallbackCount = new LongAdder();
+
+    private final Mode mode;
+    private final int maxWidth;
+
+    public DocumentParser() {
+        this(Mode.DOM);
+    }
+
+    public DocumentParser(Mode mode) {
+        this(mode, DEFAULT_MAX_WIDTH);
+    }
+
+    /**
+     * @param mode     the HTML parsing strategy
+     * @param maxWidth the line width to wrap the text at
+     */
+    public DocumentParser(Mode mode, int maxWidth) {
+        this.mode = mode;
+        this.maxWidth = maxWidth;
+    }
+
+    /**
+     * Wrapper class to handle Tag description. It is a view over a row of the {@link TagStore}.
      */
     public static class Tag {
 
-        private String name;
-        private int begin;
-        private int end;
-        private String text;
-        private Map<String, String> attr = new HashMap<>();
+        private final TagStore store;
+        private final int index;
 
+        Tag(TagStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+
+        /**
+         * Creates a detached tag with an empty span at the offset and no text.
+         *
+         * @deprecated tags are views over the {@link TagStore} of a parsed document
+         */
+        @Deprecated
         public Tag(String name, int begin, Attributes attr) {
-            this.name = name;
-            this.begin = begin;
-            this.end = begin;
-            attr.asList().stream().forEach(a -> {
-                this.attr.put(a.getKey(), a.getValue());
-            });
+            this(new TagStore(), 0);
+            store.add(name, begin);
+            for (Attribute attribute : attr) {
+                store.setAttribute(0, attribute.getKey(), attribute.getValue());
+            }
+            store.seal(null);
         }
 
         public String getName() {
-            return name;
+            return store.getName(index);
         }
 
         public int getBegin() {
-            return begin;
+            return store.getBegin(index);
         }
 
         public int getEnd() {
-            return end;
+            return store.getEnd(index);
         }
 
+        /**
+         * Returns a read-only copy of the tag attributes.
+         */
         public Map<String, String> getAttr() {
-            return attr;
+            return Collections.unmodifiableMap(store.getAttributes(index));
         }
 
         public String getText() {
-            return text;
-        }
-
-        void complete(String text, int end) {
-            this.text = text;
-            this.end = end;
+            return store.getText(index);
         }
 
         @Override
         public String toString() {
             return "Tag{" +
-                    "name='" + name + '\'' +
-                    ", begin=" + begin +
-                    ", end=" + end +
-                    ", text='" + text + '\'' +
-                    ", attr=" + attr +
+                    "name='" + getName() + '\'' +
+                    ", begin=" + getBegin() +
+                    ", end=" + getEnd() +
+                    ", text='" + getText() + '\'' +
+                    ", attr=" + getAttr() +
                     '}';
         }
     }
 
+    /**
+     * Columnar storage of the document tags.
+     * <p>
+     * Tag offsets and name ids are kept in parallel int arrays, tag names and attribute names and values are interned,
+     * and the attributes of all tags share one pool where each tag owns a contiguous range. The tag text is not copied:
+     * it is cut from the document text on request.
+     */
+    public static class TagStore {
+
+        private int size;
+        private int[] begins = new int[64];
+        private int[] ends = new int[64];
+        private int[] nameIds = new int[64];
+        private int[] attrStarts = new int[64];
+        private int[] attrEnds = new int[64];
+
+        private int attrSize;
+        private int[] attrNameIds = new int[64];
+        private int[] attrValueIds = new int[64];
+
+        private final Dictionary names = new Dictionary();
+        private final Dictionary values = new Dictionary();
+        private String text;
+
+        /**
+         * Adds a tag starting at the provided offset and returns its index.
+         */
+        int add(String name, int begin) {
+            if (size == begins.length) {
+                int capacity = size * 2;
+                begins = Arrays.copyOf(begins, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                nameIds = Arrays.copyOf(nameIds, capacity);
+                attrStarts = Arrays.copyOf(attrStarts, capacity);
+                attrEnds = Arrays.copyOf(attrEnds, capacity);
+            }
+            begins[size] = begin;
+            ends[size] = begin;
+            nameIds[size] = names.id(name);
+            attrStarts[size] = attrSize;
+            attrEnds[size] = attrSize;
+            return size++;
+        }
+
+        /**
+         * Sets an attribute of the last added tag.
+         */
+        void setAttribute(int index, String name, String value) {
+            if (index != size - 1) {
+                throw new IllegalStateException("Attributes can only be set on the last added tag");
+            }
+            int nameId = names.id(name);
+            int valueId = values.id(value);
+            for (int a = attrStarts[index]; a < attrEnds[index]; a++) {
+                if (attrNameIds[a] == nameId) {
+                    attrValueIds[a] = valueId;
+                    return;
+                }
+            }
+            if (attrSize == attrNameIds.length) {
+                attrNameIds = Arrays.copyOf(attrNameIds, attrSize * 2);
+                attrValueIds = Arrays.copyOf(attrValueIds, attrSize * 2);
+            }
+            attrNameIds[attrSize] = nameId;
+            attrValueIds[attrSize] = valueId;
+            attrEnds[index] = ++attrSize;
+        }
+
+        void complete(int index, int end) {
+            ends[index] = end;
+        }
+
+        /**
+         * Attaches the document text and trims the columns to size. The store is read-only afterwards.
+         */
+        void seal(String text) {
+            this.text = text;
+            begins = Arrays.copyOf(begins, size);
+            ends = Arrays.copyOf(ends, size);
+            nameIds = Arrays.copyOf(nameIds, size);
+            attrStarts = Arrays.copyOf(attrStarts, size);
+            attrEnds = Arrays.copyOf(attrEnds, size);
+            attrNameIds = Arrays.copyOf(attrNameIds, attrSize);
+            attrValueIds = Arrays.copyOf(attrValueIds, attrSize);
+            names.seal();
+            values.seal();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String getName(int index) {
+            return names.get(nameIds[index]);
+        }
+
+        public int getBegin(int index) {
+            return begins[index];
+        }
+
+        public int getEnd(int index) {
+            return ends[index];
+        }
+
+        /**
+         * Returns the tag text cut from the document text, null for a store without text.
+         */
+        public String getText(int index) {
+            return text == null ? null : text.substring(begins[index], ends[index]);
+        }
+
+        public int getAttributeCount(int index) {
+            return attrEnds[index] - attrStarts[index];
+        }
+
+        public String getAttributeName(int index, int attribute) {
+            return names.get(attrNameIds[attrStarts[index] + attribute]);
+        }
+
+        public String getAttributeValue(int index, int attribute) {
+            return values.get(attrValueIds[attrStarts[index] + attribute]);
+        }
+
+        /**
+         * Returns the attribute value or null if the tag does not have the attribute.
+         */
+        public String getAttribute(int index, String name) {
+            for (int a = attrStarts[index]; a < attrEnds[index]; a++) {
+                if (names.get(attrNameIds[a]).equals(name)) {
+                    return values.get(attrValueIds[a]);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns a copy of the tag attributes.
+         */
+        public Map<String, String> getAttributes(int index) {
+            Map<String, String> result = new HashMap<>();
+            for (int a = attrStarts[index]; a < attrEnds[index]; a++) {
+                result.put(names.get(attrNameIds[a]), values.get(attrValueIds[a]));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * String interning dictionary.
+     */
+    private static class Dictionary {
+
+        private Map<String, Integer> ids = new HashMap<>();
+        private List<String> strings = new ArrayList<>();
+        private String[] sealed;
+
+        int id(String string) {
+            Integer id = ids.get(string);
+            if (id == null) {
+                id = strings.size();
+                ids.put(string, id);
+                strings.add(string);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return sealed != null ? sealed[id] : strings.get(id);
+        }
+
+        /**
+         * Drops the lookup map, only {@link #get(int)} is available afterwards.
+         */
+        void seal() {
+            sealed = strings.toArray(new String[0]);
+            ids = null;
+            strings = null;
+        }
+    }
+
     /**
      * Private wrapper class to handle table indexes
      */
@@ -112,22 +351,76 @@ public class DocumentParser {
     public static class DocumentContent {
 
         private String text;
-        private List<Tag> tags = new ArrayList<>();
+        private TagStore tagStore;
 
+        public DocumentContent(String text, TagStore tagStore) {
+            this.text = text;
+            this.tagStore = tagStore;
+        }
+
+        /**
+         * Copies the tags into a new {@link TagStore} over the text.
+         *
+         * @deprecated use {@link #DocumentContent(String, TagStore)}
+         */
+        @Deprecated
         public DocumentContent(String text, List<Tag> tags) {
             this.text = text;
-            this.tags = tags;
+            this.tagStore = new TagStore();
+            for (Tag tag : tags) {
+                int index = tagStore.add(tag.getName(), tag.getBegin());
+                for (Map.Entry<String, String> attribute : tag.getAttr().entrySet()) {
+                    tagStore.setAttribute(index, attribute.getKey(), attribute.getValue());
+                }
+                tagStore.complete(index, tag.getEnd());
+            }
+            tagStore.seal(text);
         }
 
         public String getText() {
             return text;
         }
 
+        public TagStore getTagStore() {
+            return tagStore;
+        }
+
+        /**
+         * Returns the tags as views over the {@link TagStore}.
+         */
         public List<Tag> getTags() {
-            return tags;
+            return new AbstractList<Tag>() {
+                @Override
+                public Tag get(int index) {
+                    if (index < 0 || index >= tagStore.size()) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + tagStore.size());
+                    }
+                    return new Tag(tagStore, index);
+                }
+
+                @Override
+                public int size() {
+                    return tagStore.size();
+                }
+            };
         }
     }
 
+    /**
+     * Returns the number of documents parsed in {@link Mode#STREAMING} without falling back to the DOM.
+     */
+    public static long getStreamedCount() {
+        return streamedCount.sum();
+    }
+
+    /**
+     * Returns the number of documents that {@link Mode#STREAMING} parsed again as DOM because jsoup moves nodes in
+     * them.
+     */
+    public static long getStreamingFallbackCount() {
+        return streamingFallbackCount.sum();
+    }
+
     /**
      * Prepares documentContent from html
      *
@@ -135,8 +428,19 @@ public class DocumentParser {
      * @return
      */
     public DocumentContent prepareDocumentContent(String html) {
-        Element element = Jsoup.parse(html);
         FormattingVisitor formatter = new FormattingVisitor();
+        if (mode == Mode.STREAMING) {
+            if (new StreamingHtmlParser(html, formatter).parse()) { // call .head() and .tail() while tokenizing
+                streamedCount.increment();
+                return formatter.getDocumentContent();
+            }
+            streamingFallbackCount.increment();
+            long fallbacks = getStreamingFallbackCount();
+            logger.trace("Streaming parse falls back to DOM for {0} chars of HTML, {1} of {2} documents so far",
+                    html.length(), fallbacks, fallbacks + getStreamedCount());
+            formatter = new FormattingVisitor(); // the nodes have to be moved, start over with the DOM
+        }
+        Element element = Jsoup.parse(html);
         NodeTraversor traversor = new NodeTraversor(formatter);
         traversor.traverse(element); // walk the DOM, and call .head() and .tail() for each node
         return formatter.getDocumentContent();
@@ -146,12 +450,11 @@ public class DocumentParser {
     // the formatting rules, implemented in a breadth-first DOM traverse
     private class FormattingVisitor implements NodeVisitor {
 
-        private Stack<Tag> currentTags = new Stack<>();
+        private Stack<Integer> currentTags = new Stack<>();
         private Stack<TableIndexes> tableIndexes = new Stack<>();
-        private static final int maxWidth = 80;
         private int width = 0;
         private StringBuilder accum = new StringBuilder(); // holds the accumulated text
-        private List<Tag> tags = new ArrayList<>();
+        private TagStore tags = new TagStore();
         private int rowIndex = 0;
         private int columnIndex = 0;
         private int lineIndex = 0;
@@ -179,29 +482,30 @@ public class DocumentParser {
 
         void addTag(Node node) {
             if (filterTag(node)) {
-                Tag tag = new Tag(node.nodeName(), accum.length(), node.attributes());
+                int tag = tags.add(node.nodeName(), accum.length());
+                for (Attribute attribute : node.attributes()) {
+                    tags.setAttribute(tag, attribute.getKey(), attribute.getValue());
+                }
                 currentTags.push(tag);
-                tags.add(tag);
 
                 if ("table".equalsIgnoreCase(node.nodeName())) {
                     tableIndexes.push(new TableIndexes(rowIndex, columnIndex));
                     rowIndex = 0;
                     columnIndex = 0;
                 } else if ("tr".equalsIgnoreCase(node.nodeName())) {
-                    tag.getAttr().put(ROW_INDEX_ATTR, String.valueOf(rowIndex));
+                    tags.setAttribute(tag, ROW_INDEX_ATTR, String.valueOf(rowIndex));
                 } else if ("th".equalsIgnoreCase(node.nodeName()) || "td".equalsIgnoreCase(node.nodeName())) {
-                    tag.getAttr().put(COLUMN_INDEX_ATTR, String.valueOf(columnIndex++));
-                    tag.getAttr().put(ROW_INDEX_ATTR, String.valueOf(rowIndex));
+                    tags.setAttribute(tag, COLUMN_INDEX_ATTR, String.valueOf(columnIndex++));
+                    tags.setAttribute(tag, ROW_INDEX_ATTR, String.valueOf(rowIndex));
                 } else if ("line".equalsIgnoreCase(node.nodeName())) {
-                    tag.getAttr().put(LINE_INDEX_ATTR, String.valueOf(lineIndex++));
+                    tags.setAttribute(tag, LINE_INDEX_ATTR, String.valueOf(lineIndex++));
                 }
             }
         }
 
         void completeTag(Node node) {
             if (filterTag(node)) {
-                Tag tag = currentTags.pop();
-                tag.complete(accum.substring(tag.getBegin(), accum.length()), accum.length());
+                tags.complete(currentTags.pop(), accum.length());
 
                 if ("table".equalsIgnoreCase(node.nodeName())) {
                     TableIndexes tableIndexes = this.tableIndexes.pop();
@@ -231,35 +535,71 @@ public class DocumentParser {
                 width = 0; // reset counter if starts with a newline. only from formats above, not in natural text
             }
             if (text.equals(" ") &&
-                    (accum.length() == 0 || StringUtil.in(accum.substring(accum.length() - 1), " ", "\n"))) {
+                    (accum.length() == 0 || isSpaceOrNewLine(accum.charAt(accum.length() - 1)))) {
                 return; // don't accumulate long runs of empty spaces
             }
 
-            if (text.length() + width > maxWidth) { // won't fit, needs to wrap
-                String words[] = text.split("\\s+");
-                for (int i = 0; i < words.length; i++) {
-                    String word = words[i];
-                    boolean last = i == words.length - 1;
-                    if (!last) // insert a space if not the last word
-                    {
-                        word = word + " ";
-                    }
-                    if (word.length() + width > maxWidth) { // wrap and reset counter
-                        accum.append("\n").append(word);
-                        width = word.length();
-                    } else {
-                        accum.append(word);
-                        width += word.length();
+            int length = text.length();
+            if (length + width > maxWidth) { // won't fit, needs to wrap
+                // scans the words the same way text.split("\\s+") splits them
+                if (length == 0) {
+                    appendWord(text, 0, 0, false);
+                    return;
+                }
+                int begin = skipWhitespace(text, 0);
+                if (begin > 0 && begin < length) {
+                    appendWord(text, 0, 0, true); // leading empty word
+                }
+                while (begin < length) {
+                    int end = begin;
+                    while (end < length && !isWhitespace(text.charAt(end))) {
+                        end++;
                     }
+                    int next = skipWhitespace(text, end);
+                    appendWord(text, begin, end, next < length); // insert a space if not the last word
+                    begin = next;
                 }
             } else { // fits as is, without need to wrap text
                 accum.append(text);
-                width += text.length();
+                width += length;
+            }
+        }
+
+        // appends the text range as a word, wrapping it to the new line if needed
+        private void appendWord(String text, int begin, int end, boolean space) {
+            int length = end - begin + (space ? 1 : 0);
+            if (length + width > maxWidth) { // wrap and reset counter
+                accum.append('\n');
+                width = 0;
+            }
+            accum.append(text, begin, end);
+            if (space) {
+                accum.append(' ');
             }
+            width += length;
+        }
+
+        private int skipWhitespace(String text, int from) {
+            int i = from;
+            while (i < text.length() && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        // the \s regex class
+        private boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+
+        private boolean isSpaceOrNewLine(char c) {
+            return c == ' ' || c == '\n';
         }
 
         public DocumentContent getDocumentContent() {
-            return new DocumentContent(accum.toString(), tags);
+            String text = accum.toString();
+            tags.seal(text);
+            return new DocumentContent(text, tags);
         }
     }
 
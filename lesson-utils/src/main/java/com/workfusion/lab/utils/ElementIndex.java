@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
+
+/**
+ * Immutable span index of document elements answering covering and covered queries.
+ * <p>
+ * The elements are sorted by begin offset and, for equal begins, by descending end, the order of
+ * {@code Document.findAll}. A segment tree over that order keeps the minimum and maximum end of every range, so a
+ * query visits only the ranges that may hold a match: O((k + 1) log n) for k results instead of a scan of all n
+ * elements. Build the index once per document and element type after the annotators that add the elements ran.
+ * <pre>
+ * ElementIndex&lt;Token&gt; tokens = ElementIndex.of(document, Token.class);
+ * for (Sentence sentence : document.findAll(Sentence.class)) {
+ *     List&lt;Token&gt; sentenceTokens = tokens.findCovered(sentence);
+ * }
+ * </pre>
+ */
+public final class ElementIndex<T extends Element> {
+
+    private static final Comparator<Element> ORDER = Comparator.comparingInt(Element::getBegin)
+            .thenComparing(Comparator.comparingInt(Element::getEnd).reversed());
+
+    private final List<T> elements;
+    private final int[] begins;
+    /**
+     * Segment tree over the sorted elements: node 1 is the root, node i has children 2i and 2i + 1, leaves start at
+     * {@link #leaves}. Empty leaves have the neutral values.
+     */
+    private final int[] minEnds;
+    private final int[] maxEnds;
+    private final int leaves;
+
+    private ElementIndex(List<T> elements) {
+        this.elements = elements;
+        int size = elements.size();
+        this.begins = new int[size];
+        int capacity = 1;
+        while (capacity < size) {
+            capacity <<= 1;
+        }
+        this.leaves = capacity;
+        this.minEnds = new int[2 * capacity];
+        this.maxEnds = new int[2 * capacity];
+        for (int i = 0; i < capacity; i++) {
+            if (i < size) {
+                Element element = elements.get(i);
+                begins[i] = element.getBegin();
+                minEnds[capacity + i] = element.getEnd();
+                maxEnds[capacity + i] = element.getEnd();
+            } else {
+                minEnds[capacity + i] = Integer.MAX_VALUE;
+                maxEnds[capacity + i] = Integer.MIN_VALUE;
+            }
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            minEnds[node] = Math.min(minEnds[2 * node], minEnds[2 * node + 1]);
+            maxEnds[node] = Math.max(maxEnds[2 * node], maxEnds[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Indexes the elements.
+     */
+    public static <T extends Element> ElementIndex<T> of(Collection<? extends T> elements) {
+        List<T> sorted = new ArrayList<>(elements);
+        sorted.sort(ORDER);
+        return new ElementIndex<>(sorted);
+    }
+
+    /**
+     * Indexes all elements of the type in the document.
+     */
+    public static <T extends Element> ElementIndex<T> of(Document document, Class<T> type) {
+        return of(document.findAll(type));
+    }
+
+    public int size() {
+        return elements.size();
+    }
+
+    /**
+     * Returns all elements in span order.
+     */
+    public List<T> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * Returns the elements covering the element's span.
+     */
+    public List<T> findCovering(Element covered) {
+        return findCovering(covered.getBegin(), covered.getEnd());
+    }
+
+    /**
+     * Returns the elements with {@code begin <= begin} and {@code end >= end}, in span order.
+     */
+    public List<T> findCovering(int begin, int end) {
+        List<T> result = new ArrayList<>();
+        // Candidates are the elements beginning at or before the span
+        int to = upperBound(begin);
+        if (to > 0) {
+            collectCovering(1, 0, leaves, to, end, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the elements covered by the element's span, including the element itself if it is indexed.
+     */
+    public List<T> findCovered(Element covering) {
+        return findCovered(covering.getBegin(), covering.getEnd());
+    }
+
+    /**
+     * Returns the elements with {@code begin >= begin} and {@code end <= end}, in span order.
+     */
+    public List<T> findCovered(int begin, int end) {
+        List<T> result = new ArrayList<>();
+        // Candidates are the elements beginning inside the span
+        int from = lowerBound(begin);
+        int to = upperBound(end);
+        if (from < to) {
+            collectCovered(1, 0, leaves, from, to, end, result);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the elements in [0, to) of the node range [nodeFrom, nodeTo) that end at or after the end.
+     */
+    private void collectCovering(int node, int nodeFrom, int nodeTo, int to, int end, List<T> result) {
+        if (nodeFrom >= to || maxEnds[node] < end) {
+            return;
+        }
+        if (node >= leaves) {
+            result.add(elements.get(nodeFrom));
+            return;
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        collectCovering(2 * node, nodeFrom, middle, to, end, result);
+        collectCovering(2 * node + 1, middle, nodeTo, to, end, result);
+    }
+
+    /**
+     * Adds the elements in [from, to) of the node range [nodeFrom, nodeTo) that end at or before the end.
+     */
+    private void collectCovered(int node, int nodeFrom, int nodeTo, int from, int to, int end, List<T> result) {
+        if (nodeTo <= from || nodeFrom >= to || minEnds[node] > end) {
+            return;
+        }
+        if (node >= leaves) {
+            result.add(elements.get(nodeFrom));
+            return;
+        }
+        int middle = (nodeFrom + nodeTo) >>> 1;
+        collectCovered(2 * node, nodeFrom, middle, from, to, end, result);
+        collectCovered(2 * node + 1, middle, nodeTo, from, to, end, result);
+    }
+
+    /**
+     * Returns the index of the first element beginning at or after the offset.
+     */
+    private int lowerBound(int offset) {
+        int low = 0;
+        int high = begins.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (begins[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first element beginning after the offset.
+     */
+    private int upperBound(int offset) {
+        int low = 0;
+        int high = begins.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (begins[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestField;
+import com.workfusion.lab.model.TestNamedEntity;
+import com.workfusion.lab.model.TestSentence;
+
+/**
+ * Compact binary snapshot of golden elements, read by {@link GoldenFileVerifier} like the JSON golden files.
+ * <p>
+ * The JSON files repeat the class name and field names for every element. The snapshot keeps each distinct string
+ * once in a string table and encodes the offsets as variable-length deltas, so it is several times smaller and is
+ * read without tokenizing.
+ * <p>
+ * Binary layout (varints are unsigned LEB128, signed values are zigzag-encoded):
+ * <pre>
+ * header:   int magic, byte version, byte flags
+ * strings:  varint count, count x (varint length, UTF-8 bytes)
+ * elements: varint count, count x (byte kind, signed varint begin delta, signed varint length, string refs)
+ * trailer:  int CRC32 of all preceding bytes, if flags has {@link #FLAG_CHECKSUM}
+ * </pre>
+ * The kind is 0 for {@link TestElement}, 1 for {@link TestSentence}, 2 for {@link TestNamedEntity} and 3 for
+ * {@link TestField}. The begin delta is relative to the previous element. String refs are the text, then the type
+ * for entities or the name, value and score for fields, each as varint table index + 1, with 0 for null.
+ */
+public final class ElementSnapshot {
+
+    static final int MAGIC = 0x57464553; // "WFES"
+    static final int VERSION = 1;
+    static final int FLAG_CHECKSUM = 1;
+
+    private static final int KIND_ELEMENT = 0;
+    private static final int KIND_SENTENCE = 1;
+    private static final int KIND_NAMED_ENTITY = 2;
+    private static final int KIND_FIELD = 3;
+
+    private ElementSnapshot() {
+    }
+
+    /**
+     * Command line entry point: {@code ElementSnapshot <golden.json> <golden.bin> [--no-checksum]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ElementSnapshot <golden.json> <golden.bin> [--no-checksum]");
+            System.exit(1);
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]), args.length < 3 || !args[2].equals("--no-checksum"));
+    }
+
+    /**
+     * Converts a golden JSON file written by {@code JsonSerializationUtil} into a binary snapshot.
+     */
+    public static void convert(Path json, Path target, boolean checksum) throws IOException {
+        List<TestElement> elements = new ArrayList<>();
+        try (ElementSource source = new GoldenJsonReader(Files.newInputStream(json))) {
+            TestElement element;
+            while ((element = source.next()) != null) {
+                elements.add(element);
+            }
+        }
+        try (OutputStream out = Files.newOutputStream(target)) {
+            write(elements, out, checksum);
+        }
+    }
+
+    /**
+     * Writes the elements in their order. The stream is not closed.
+     *
+     * @param checksum whether to append a CRC32 verified by the reader
+     */
+    public static void write(List<? extends TestElement> elements, OutputStream out, boolean checksum) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(elements.size() * 8 + 16);
+        writeVarint(body, elements.size());
+        int previousBegin = 0;
+        for (TestElement element : elements) {
+            int kind = kindOf(element);
+            body.write(kind);
+            writeVarint(body, zigzag(element.getBegin() - previousBegin));
+            writeVarint(body, zigzag(element.getEnd() - element.getBegin()));
+            previousBegin = element.getBegin();
+            writeRef(body, element.getText(), ids, strings);
+            if (kind == KIND_NAMED_ENTITY) {
+                writeRef(body, ((TestNamedEntity) element).getType(), ids, strings);
+            } else if (kind == KIND_FIELD) {
+                TestField field = (TestField) element;
+                writeRef(body, field.getName(), ids, strings);
+                writeRef(body, field.getValue(), ids, strings);
+                writeRef(body, field.getScore() == null ? null : field.getScore().toString(), ids, strings);
+            }
+        }
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream(body.size() + strings.size() * 8 + 16);
+        writeInt(snapshot, MAGIC);
+        snapshot.write(VERSION);
+        snapshot.write(checksum ? FLAG_CHECKSUM : 0);
+        writeVarint(snapshot, strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(snapshot, bytes.length);
+            snapshot.write(bytes);
+        }
+        body.writeTo(snapshot);
+        if (checksum) {
+            CRC32 crc = new CRC32();
+            byte[] bytes = snapshot.toByteArray();
+            crc.update(bytes, 0, bytes.length);
+            writeInt(snapshot, (int) crc.getValue());
+        }
+        snapshot.writeTo(out);
+    }
+
+    /**
+     * Reads all elements of the snapshot and closes the stream.
+     */
+    public static List<TestElement> read(InputStream in) throws IOException {
+        try (Reader reader = open(in)) {
+            return reader.readAll();
+        }
+    }
+
+    /**
+     * Opens the snapshot for reading one element at a time.
+     */
+    public static Reader open(InputStream in) throws IOException {
+        return new Reader(in);
+    }
+
+    private static int kindOf(TestElement element) throws IOException {
+        Class<?> type = element.getClass();
+        if (type == TestElement.class) {
+            return KIND_ELEMENT;
+        } else if (type == TestSentence.class) {
+            return KIND_SENTENCE;
+        } else if (type == TestNamedEntity.class) {
+            return KIND_NAMED_ENTITY;
+        } else if (type == TestField.class) {
+            return KIND_FIELD;
+        }
+        throw new IOException("Unsupported snapshot element type: " + type.getName());
+    }
+
+    private static void writeRef(ByteArrayOutputStream out, String value, Map<String, Integer> ids, List<String> strings) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value);
+        }
+        writeVarint(out, id + 1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static int zigzag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    private static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Streaming snapshot reader. The string table is loaded when opened, elements are decoded on demand.
+     */
+    public static final class Reader implements ElementSource, Closeable {
+
+        private static final int BUFFER_SIZE = 8192;
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final CRC32 crc;
+        private final String[] strings;
+        private final int count;
+        private int position;
+        private int limit;
+        private int checkedFrom;
+        private int read;
+        private int previousBegin;
+
+        Reader(InputStream in) throws IOException {
+            this.in = in;
+            if (readInt() != MAGIC) {
+                throw new IOException("Not an element snapshot");
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported element snapshot version: " + version);
+            }
+            this.crc = (readByte() & FLAG_CHECKSUM) != 0 ? new CRC32() : null;
+            this.strings = new String[readVarint()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(readVarint());
+            }
+            this.count = readVarint();
+        }
+
+        /**
+         * Returns the number of elements in the snapshot.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the next element or null at the end, after the checksum was verified.
+         */
+        @Override
+        public TestElement next() throws IOException {
+            if (read >= count) {
+                if (read++ == count) {
+                    verifyChecksum();
+                }
+                return null;
+            }
+            read++;
+            int kind = readByte();
+            TestElement element;
+            switch (kind) {
+                case KIND_ELEMENT:
+                    element = new TestElement();
+                    break;
+                case KIND_SENTENCE:
+                    element = new TestSentence();
+                    break;
+                case KIND_NAMED_ENTITY:
+                    element = new TestNamedEntity();
+                    break;
+                case KIND_FIELD:
+                    element = new TestField();
+                    break;
+                default:
+                    throw new IOException("Unknown snapshot element kind " + kind + " at element " + read);
+            }
+            int begin = previousBegin + unzigzag(readVarint());
+            previousBegin = begin;
+            element.setBegin(begin);
+            element.setEnd(begin + unzigzag(readVarint()));
+            element.setText(readRef());
+            if (kind == KIND_NAMED_ENTITY) {
+                ((TestNamedEntity) element).setType(readRef());
+            } else if (kind == KIND_FIELD) {
+                TestField field = (TestField) element;
+                field.setName(readRef());
+                field.setValue(readRef());
+                String score = readRef();
+                field.setScore(score == null ? null : new BigDecimal(score));
+            }
+            return element;
+        }
+
+        /**
+         * Reads the remaining elements.
+         */
+        public List<TestElement> readAll() throws IOException {
+            List<TestElement> elements = new ArrayList<>(count - Math.min(read, count));
+            TestElement element;
+            while ((element = next()) != null) {
+                elements.add(element);
+            }
+            return elements;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void verifyChecksum() throws IOException {
+            if (crc == null) {
+                return;
+            }
+            crc.update(buffer, checkedFrom, position - checkedFrom);
+            int expected = (int) crc.getValue();
+            if (readInt() != expected) {
+                throw new IOException("Element snapshot checksum mismatch");
+            }
+        }
+
+        private String readRef() throws IOException {
+            int ref = readVarint();
+            if (ref > strings.length) {
+                throw new IOException("Invalid string reference " + ref + " at element " + read);
+            }
+            return ref == 0 ? null : strings[ref - 1];
+        }
+
+        private String readString(int length) throws IOException {
+            if (limit - position >= length) {
+                String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) readByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in element snapshot");
+        }
+
+        private int readInt() throws IOException {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+
+        private int readByte() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        private void fill() throws IOException {
+            if (crc != null) {
+                crc.update(buffer, checkedFrom, limit - checkedFrom);
+            }
+            position = 0;
+            checkedFrom = 0;
+            limit = in.read(buffer, 0, buffer.length);
+            if (limit <= 0) {
+                limit = 0;
+                throw new EOFException("Truncated element snapshot");
+            }
+        }
+    }
+
+}
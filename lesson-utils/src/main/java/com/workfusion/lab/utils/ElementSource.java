@@ -0,0 +1,20 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.workfusion.lab.model.TestElement;
+
+/**
+ * Pull source of golden elements.
+ */
+interface ElementSource extends Closeable {
+
+    /**
+     * Returns the next element or null at the end.
+     */
+    TestElement next() throws IOException;
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.workfusion.vds.sdk.api.nlp.fe.Feature;
+import com.workfusion.vds.sdk.api.nlp.fe.FeatureExtractor;
+
+/**
+ * Size-bounded cache of the features of context-free feature extractors, keyed by the extractor and the token text.
+ * <p>
+ * Only extractors annotated with {@link ContextFree} or registered with {@link #addContextFree(Class)} are cached.
+ * Extractors without instance fields are keyed by their class, others by the instance, which must then define
+ * {@code equals()} and {@code hashCode()} over its configuration; context-free extractors with instance fields and
+ * identity equality are rejected.
+ * The cache is split into independently locked LRU segments, so it may be shared by the threads of
+ * {@code processFeaturesParallel} and kept across documents and training runs. Hits, misses and evictions are
+ * counted, see {@link #getStats()}.
+ * <pre>
+ * FeatureCache cache = new FeatureCache(100_000);
+ * setFeatureCache(cache);
+ * processFeatures(document, fes);
+ * log("{0}", cache.getStats());
+ * </pre>
+ */
+public final class FeatureCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final Map<Class<?>, KeyType> keyTypes = new ConcurrentHashMap<>();
+    private final Set<Class<?>> registered = ConcurrentHashMap.newKeySet();
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize the maximum number of cached (extractor, token text) entries
+     */
+    public FeatureCache(int maxSize) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Feature cache size must be at least " + SEGMENTS + ": " + maxSize);
+        }
+        this.maxSize = maxSize;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS);
+        }
+    }
+
+    /**
+     * Declares the extractor class context-free without annotating it.
+     */
+    public FeatureCache addContextFree(Class<? extends FeatureExtractor> type) {
+        registered.add(type);
+        keyTypes.remove(type);
+        return this;
+    }
+
+    /**
+     * Returns true if the features of the extractor may be cached.
+     *
+     * @throws IllegalArgumentException if the extractor is context-free but has instance fields and does not define
+     *                                  {@code equals()}
+     */
+    public boolean isCacheable(FeatureExtractor fe) {
+        return getKeyType(fe.getClass()) != KeyType.NONE;
+    }
+
+    /**
+     * Returns the cached features of the extractor for the token text, extracting and caching them on a miss.
+     *
+     * @throws IllegalArgumentException if the extractor is not cacheable
+     */
+    public Feature[] get(FeatureExtractor fe, String tokenText, Supplier<Collection<Feature>> extractor) {
+        KeyType keyType = getKeyType(fe.getClass());
+        if (keyType == KeyType.NONE) {
+            throw new IllegalArgumentException("Feature extractor is not context-free: " + fe.getClass().getName());
+        }
+        Key key = new Key(keyType == KeyType.CLASS ? fe.getClass() : fe, tokenText);
+        Segment segment = segments[key.hash & (SEGMENTS - 1)];
+        Feature[] features;
+        synchronized (segment) {
+            features = segment.get(key);
+        }
+        if (features != null) {
+            hits.increment();
+            return features;
+        }
+        misses.increment();
+        // Extracted outside the lock, a concurrent miss on the same key computes the same features
+        features = extractor.get().toArray(new Feature[0]);
+        synchronized (segment) {
+            segment.put(key, features);
+        }
+        return features;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Drops all entries and counters.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), size());
+    }
+
+    private KeyType getKeyType(Class<?> type) {
+        KeyType keyType = keyTypes.get(type);
+        if (keyType == null) {
+            if (!registered.contains(type) && !type.isAnnotationPresent(ContextFree.class)) {
+                keyType = KeyType.NONE;
+            } else {
+                keyType = getContextFreeKeyType(type);
+            }
+            keyTypes.put(type, keyType);
+        }
+        return keyType;
+    }
+
+    /**
+     * Returns {@link KeyType#CLASS} for an extractor class without instance fields, {@link KeyType#INSTANCE} if
+     * equals() and hashCode() are declared in or below every class declaring instance fields.
+     */
+    private static KeyType getContextFreeKeyType(Class<?> type) {
+        Class<?> equalsType;
+        Class<?> hashCodeType;
+        try {
+            equalsType = type.getMethod("equals", Object.class).getDeclaringClass();
+            hashCodeType = type.getMethod("hashCode").getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        KeyType keyType = KeyType.CLASS;
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (!c.isAssignableFrom(equalsType) || !c.isAssignableFrom(hashCodeType)) {
+                    throw new IllegalArgumentException("Context-free feature extractor " + type.getName()
+                            + " has instance fields but does not define equals() and hashCode() over them: "
+                            + field.getName());
+                }
+                keyType = KeyType.INSTANCE;
+            }
+        }
+        return keyType;
+    }
+
+    /**
+     * What the features of an extractor class are cached by.
+     */
+    private enum KeyType {
+        NONE, CLASS, INSTANCE
+    }
+
+    /**
+     * Access-ordered map evicting the least recently used entry above the capacity.
+     */
+    private final class Segment extends LinkedHashMap<Key, Feature[]> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Feature[]> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+
+        private final Object extractor;
+        private final String text;
+        private final int hash;
+
+        /**
+         * @param extractor the extractor class, or the extractor itself if it has a configuration
+         */
+        Key(Object extractor, String text) {
+            this.extractor = extractor;
+            this.text = text;
+            int h = extractor.hashCode() * 31 + text.hashCode();
+            // Spreads the high bits, the low ones select the segment
+            this.hash = h ^ h >>> 16;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return extractor.equals(other.extractor) && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cache counters.
+     */
+    public static final class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        Stats(long hits, long misses, long evictions, int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getHitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Feature cache: %d hits, %d misses, hit ratio %.3f, %d evictions, %d entries",
+                    hits, misses, getHitRatio(), evictions, size);
+        }
+    }
+
+}
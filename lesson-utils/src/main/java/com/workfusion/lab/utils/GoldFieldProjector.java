@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Field;
+import com.workfusion.vds.sdk.api.nlp.model.Tag;
+
+/**
+ * Adds gold Fields to documents from the Tags with the selected names.
+ * <p>
+ * The field names are looked up in a hash map built once, so a document costs one pass over its Tags whatever the
+ * number of gold fields. Tag attributes are read only for the selected tags and may be skipped altogether with
+ * {@link #GoldFieldProjector(boolean, String...)}. The projector is immutable and may be shared by threads.
+ * <pre>
+ * GoldFieldProjector projector = new GoldFieldProjector("total", "invoice_number");
+ * Map&lt;String, Integer&gt; counts = projector.project(documents, 4);
+ * </pre>
+ */
+public final class GoldFieldProjector {
+
+    /**
+     * Score of the gold fields.
+     */
+    public static final double GOLD_SCORE = 0.5;
+
+    /**
+     * Field name to its position in the counts.
+     */
+    private final Map<String, Integer> names;
+    private final String[] fields;
+    private final boolean copyAttributes;
+
+    public GoldFieldProjector(String... fields) {
+        this(true, fields);
+    }
+
+    /**
+     * @param copyAttributes whether the tag attributes are copied to the fields
+     */
+    public GoldFieldProjector(boolean copyAttributes, String... fields) {
+        this.copyAttributes = copyAttributes;
+        this.fields = fields.clone();
+        this.names = new HashMap<>(fields.length * 2);
+        for (String field : fields) {
+            names.putIfAbsent(field, names.size());
+        }
+    }
+
+    /**
+     * Adds the gold fields to the document.
+     *
+     * @return the number of fields added per field name, in the order of the names
+     */
+    public Map<String, Integer> project(Document document) {
+        int[] counts = new int[names.size()];
+        projectInto(document, counts);
+        return toMap(counts);
+    }
+
+    /**
+     * Adds the gold fields to the documents, each document processed by one of the threads.
+     *
+     * @return the total number of fields added per field name, in the order of the names
+     */
+    public Map<String, Integer> project(Collection<? extends Document> documents, int parallelism) {
+        int[] counts = new int[names.size()];
+        if (parallelism <= 1 || documents.size() <= 1) {
+            for (Document document : documents) {
+                projectInto(document, counts);
+            }
+            return toMap(counts);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, documents.size()));
+        try {
+            List<Future<int[]>> futures = new ArrayList<>(documents.size());
+            for (Document document : documents) {
+                futures.add(executor.submit(() -> {
+                    int[] documentCounts = new int[names.size()];
+                    projectInto(document, documentCounts);
+                    return documentCounts;
+                }));
+            }
+            for (Future<int[]> future : futures) {
+                int[] documentCounts = future.get();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += documentCounts[i];
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while adding gold fields", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Can't add gold fields", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return toMap(counts);
+    }
+
+    private void projectInto(Document document, int[] counts) {
+        // Selected first, the tag collection is not modified while it is iterated
+        List<Tag> selected = new ArrayList<>();
+        for (Tag tag : document.findAll(Tag.class)) {
+            Integer index = names.get(tag.getName());
+            if (index != null) {
+                selected.add(tag);
+                counts[index]++;
+            }
+        }
+        for (Tag tag : selected) {
+            Field.Descriptor descriptor = Field.descriptor()
+                    .setBegin(tag.getBegin())
+                    .setEnd(tag.getEnd())
+                    .setName(tag.getName())
+                    .setScore(GOLD_SCORE)
+                    .setValue(tag.getText());
+            if (copyAttributes) {
+                Map<String, String> attributes = tag.getAttributes();
+                if (!attributes.isEmpty()) {
+                    attributes.forEach(descriptor::setAttribute);
+                }
+            }
+            document.add(descriptor);
+        }
+    }
+
+    private Map<String, Integer> toMap(int[] counts) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (String field : fields) {
+            result.put(field, counts[names.get(field)]);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestElementFactory;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
+
+/**
+ * Streaming comparison of elements with a golden JSON file written by {@code JsonSerializationUtil} or a binary
+ * {@link ElementSnapshot}.
+ * <p>
+ * The golden list is pulled one element at a time and merged with the actual elements ordered by (begin, end), so
+ * only the actual elements and the golden elements sharing one begin offset are held in memory. All differences are
+ * collected in one pass: golden elements without an actual one are missing, actual elements without a golden one
+ * are extra, and elements of the same type with the same span but different content are mismatched. Elements
+ * sharing a span are paired by equal content first, then by type and text, then by type.
+ * <p>
+ * Golden files are ordered by begin offset, so the actual elements must be too: an actual element that begins
+ * before the one preceding it is reported as misordered. The order of elements with the same begin offset is not
+ * checked.
+ */
+public final class GoldenFileVerifier {
+
+    /**
+     * Maximum number of differences kept in a {@link Report}, all of them are counted.
+     */
+    public static final int MAX_REPORTED_DIFFS = 1000;
+
+    private static final Comparator<TestElement> SPAN_ORDER = Comparator.comparingInt(TestElement::getBegin)
+            .thenComparingInt(TestElement::getEnd);
+
+    private GoldenFileVerifier() {
+    }
+
+    /**
+     * Compares the elements with the golden list.
+     *
+     * @param actual the elements to check, ordered by begin offset
+     * @param golden the golden JSON or binary snapshot stream, closed when done
+     * @return the differences found
+     */
+    public static Report verify(List<? extends Element> actual, InputStream golden) throws IOException {
+        Report report = new Report();
+        for (int i = 1; i < actual.size(); i++) {
+            if (actual.get(i).getBegin() < actual.get(i - 1).getBegin()) {
+                report.add(DiffType.MISORDERED, null, TestElementFactory.createElement(actual.get(i)));
+            }
+        }
+        List<Element> sorted = new ArrayList<>(actual);
+        sorted.sort(Comparator.comparingInt(Element::getBegin).thenComparingInt(Element::getEnd));
+
+        try (ElementSource source = open(golden)) {
+            GroupIterator expected = new GroupIterator(source);
+            int next = 0;
+            List<TestElement> group = new ArrayList<>();
+            while (expected.nextGroup(group)) {
+                int begin = group.get(0).getBegin();
+                // Actual elements before the group have no golden counterpart
+                while (next < sorted.size() && sorted.get(next).getBegin() < begin) {
+                    report.add(DiffType.EXTRA, null, TestElementFactory.createElement(sorted.get(next++)));
+                }
+                List<TestElement> actualGroup = new ArrayList<>();
+                while (next < sorted.size() && sorted.get(next).getBegin() == begin) {
+                    actualGroup.add(TestElementFactory.createElement(sorted.get(next++)));
+                }
+                mergeGroup(group, actualGroup, report);
+            }
+            while (next < sorted.size()) {
+                report.add(DiffType.EXTRA, null, TestElementFactory.createElement(sorted.get(next++)));
+            }
+            report.expectedCount = expected.count;
+        }
+        report.actualCount = sorted.size();
+        return report;
+    }
+
+    /**
+     * Opens the golden stream in the {@link ElementSnapshot} binary format or the JSON format, detected by the magic.
+     */
+    private static ElementSource open(InputStream golden) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(golden, 1 << 16);
+        in.mark(4);
+        int magic = 0;
+        for (int i = 0; i < 4; i++) {
+            magic = magic << 8 | (in.read() & 0xFF);
+        }
+        in.reset();
+        return magic == ElementSnapshot.MAGIC ? ElementSnapshot.open(in) : new GoldenJsonReader(in);
+    }
+
+    /**
+     * Merges golden and actual elements with the same begin offset, both sorted by end.
+     */
+    private static void mergeGroup(List<TestElement> expected, List<TestElement> actual, Report report) {
+        int e = 0;
+        int a = 0;
+        while (e < expected.size() || a < actual.size()) {
+            int order = e == expected.size() ? 1
+                    : a == actual.size() ? -1
+                    : Integer.compare(expected.get(e).getEnd(), actual.get(a).getEnd());
+            if (order < 0) {
+                report.add(DiffType.MISSING, expected.get(e++), null);
+            } else if (order > 0) {
+                report.add(DiffType.EXTRA, null, actual.get(a++));
+            } else {
+                int end = expected.get(e).getEnd();
+                int expectedEnd = e;
+                while (expectedEnd < expected.size() && expected.get(expectedEnd).getEnd() == end) {
+                    expectedEnd++;
+                }
+                int actualEnd = a;
+                while (actualEnd < actual.size() && actual.get(actualEnd).getEnd() == end) {
+                    actualEnd++;
+                }
+                mergeSpan(new ArrayList<>(expected.subList(e, expectedEnd)),
+                        new ArrayList<>(actual.subList(a, actualEnd)), report);
+                e = expectedEnd;
+                a = actualEnd;
+            }
+        }
+    }
+
+    /**
+     * Pairs golden and actual elements with the same span: equal elements first, then elements of the same type with
+     * the same text, then elements of the same type. Unpaired elements are missing or extra.
+     */
+    private static void mergeSpan(List<TestElement> expected, List<TestElement> actual, Report report) {
+        for (int pass = 0; pass < 3; pass++) {
+            for (Iterator<TestElement> expectedIterator = expected.iterator(); expectedIterator.hasNext(); ) {
+                TestElement expectedElement = expectedIterator.next();
+                for (Iterator<TestElement> actualIterator = actual.iterator(); actualIterator.hasNext(); ) {
+                    TestElement actualElement = actualIterator.next();
+                    // Subclass equals() methods cast without checking the class
+                    if (expectedElement.getClass() != actualElement.getClass()
+                            || pass == 0 && !expectedElement.equals(actualElement)
+                            || pass == 1 && !Objects.equals(expectedElement.getText(), actualElement.getText())) {
+                        continue;
+                    }
+                    if (pass > 0) {
+                        report.add(DiffType.MISMATCHED, expectedElement, actualElement);
+                    }
+                    expectedIterator.remove();
+                    actualIterator.remove();
+                    break;
+                }
+            }
+        }
+        for (TestElement expectedElement : expected) {
+            report.add(DiffType.MISSING, expectedElement, null);
+        }
+        for (TestElement actualElement : actual) {
+            report.add(DiffType.EXTRA, null, actualElement);
+        }
+    }
+
+    /**
+     * Pulls the golden elements grouped by begin offset.
+     */
+    private static final class GroupIterator {
+
+        private final ElementSource source;
+        private TestElement pending;
+        private int count;
+
+        GroupIterator(ElementSource source) throws IOException {
+            this.source = source;
+            this.pending = read();
+        }
+
+        /**
+         * Fills the group with the next golden elements sharing a begin offset, sorted by end.
+         *
+         * @return false if there are no more elements
+         */
+        boolean nextGroup(List<TestElement> group) throws IOException {
+            group.clear();
+            if (pending == null) {
+                return false;
+            }
+            int begin = pending.getBegin();
+            while (pending != null && pending.getBegin() == begin) {
+                group.add(pending);
+                pending = read();
+            }
+            if (pending != null && pending.getBegin() < begin) {
+                throw new IOException("Golden file is not ordered by begin offset at element " + count + ": " + pending);
+            }
+            Collections.sort(group, SPAN_ORDER);
+            return true;
+        }
+
+        private TestElement read() throws IOException {
+            TestElement element = source.next();
+            if (element != null) {
+                count++;
+            }
+            return element;
+        }
+    }
+
+    /**
+     * Kind of difference.
+     */
+    public enum DiffType {
+        MISSING, EXTRA, MISMATCHED, MISORDERED
+    }
+
+    /**
+     * One difference: the golden element is null for {@link DiffType#EXTRA} and {@link DiffType#MISORDERED}, the
+     * actual one for {@link DiffType#MISSING}.
+     */
+    public static final class Diff {
+
+        private final DiffType type;
+        private final TestElement expected;
+        private final TestElement actual;
+
+        Diff(DiffType type, TestElement expected, TestElement actual) {
+            this.type = type;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public DiffType getType() {
+            return type;
+        }
+
+        public TestElement getExpected() {
+            return expected;
+        }
+
+        public TestElement getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case MISSING:
+                    return "Missing " + expected;
+                case EXTRA:
+                    return "Extra " + actual;
+                case MISORDERED:
+                    return "Misordered " + actual;
+                default:
+                    return "Mismatched " + expected + " <-- " + actual;
+            }
+        }
+    }
+
+    /**
+     * Verification result.
+     */
+    public static final class Report {
+
+        private final List<Diff> diffs = new ArrayList<>();
+        private final int[] counts = new int[DiffType.values().length];
+        private int expectedCount;
+        private int actualCount;
+
+        void add(DiffType type, TestElement expected, TestElement actual) {
+            counts[type.ordinal()]++;
+            if (diffs.size() < MAX_REPORTED_DIFFS) {
+                diffs.add(new Diff(type, expected, actual));
+            }
+        }
+
+        public boolean isEmpty() {
+            return getDiffCount() == 0;
+        }
+
+        public int getDiffCount() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public int getCount(DiffType type) {
+            return counts[type.ordinal()];
+        }
+
+        /**
+         * Returns the first {@link #MAX_REPORTED_DIFFS} differences: the misordered elements in list order, then the
+         * others in span order.
+         */
+        public List<Diff> getDiffs() {
+            return Collections.unmodifiableList(diffs);
+        }
+
+        public int getExpectedCount() {
+            return expectedCount;
+        }
+
+        public int getActualCount() {
+            return actualCount;
+        }
+
+        @Override
+        public String toString() {
+            return "expected " + expectedCount + " elements, actual " + actualCount
+                    + ": " + getCount(DiffType.MISSING) + " missing"
+                    + ", " + getCount(DiffType.EXTRA) + " extra"
+                    + ", " + getCount(DiffType.MISMATCHED) + " mismatched"
+                    + ", " + getCount(DiffType.MISORDERED) + " misordered";
+        }
+    }
+
+}
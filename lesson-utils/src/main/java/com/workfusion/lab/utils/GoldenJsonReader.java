@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestField;
+import com.workfusion.lab.model.TestNamedEntity;
+import com.workfusion.lab.model.TestSentence;
+
+/**
+ * Pull reader of a golden JSON list written by {@code JsonSerializationUtil}:
+ * {@code {"@type":"java.util.ArrayList","@items":[{"@type":"...","begin":0,...},...]}}.
+ */
+final class GoldenJsonReader implements ElementSource {
+
+    private final JsonReader reader;
+    private boolean done;
+
+    GoldenJsonReader(InputStream in) throws IOException {
+        this.reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("@items")) {
+                reader.beginArray();
+                return;
+            }
+            reader.skipValue();
+        }
+        throw new IOException("Golden file has no @items list");
+    }
+
+    @Override
+    public TestElement next() throws IOException {
+        if (done) {
+            return null;
+        }
+        if (!reader.hasNext()) {
+            reader.endArray();
+            done = true;
+            return null;
+        }
+        reader.beginObject();
+        TestElement element = null;
+        String type = null;
+        int begin = 0;
+        int end = 0;
+        String text = null;
+        String name = null;
+        String value = null;
+        BigDecimal score = null;
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "@type":
+                    element = create(reader.nextString());
+                    break;
+                case "begin":
+                    begin = reader.nextInt();
+                    break;
+                case "end":
+                    end = reader.nextInt();
+                    break;
+                case "text":
+                    text = reader.nextString();
+                    break;
+                case "type":
+                    type = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "value":
+                    value = reader.nextString();
+                    break;
+                case "score":
+                    score = new BigDecimal(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (element == null) {
+            element = new TestElement();
+        }
+        element.setBegin(begin);
+        element.setEnd(end);
+        element.setText(text);
+        if (element instanceof TestNamedEntity) {
+            ((TestNamedEntity) element).setType(type);
+        } else if (element instanceof TestField) {
+            ((TestField) element).setName(name);
+            ((TestField) element).setValue(value);
+            ((TestField) element).setScore(score);
+        }
+        return element;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static TestElement create(String type) throws IOException {
+        if (type.equals(TestElement.class.getName())) {
+            return new TestElement();
+        } else if (type.equals(TestSentence.class.getName())) {
+            return new TestSentence();
+        } else if (type.equals(TestNamedEntity.class.getName())) {
+            return new TestNamedEntity();
+        } else if (type.equals(TestField.class.getName())) {
+            return new TestField();
+        }
+        throw new IOException("Unknown golden element type: " + type);
+    }
+
+}
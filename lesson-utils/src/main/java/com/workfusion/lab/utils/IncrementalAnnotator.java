@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.workfusion.vds.sdk.api.nlp.annotator.Annotator;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
+import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
+import com.workfusion.vds.sdk.api.nlp.model.Sentence;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
+
+/**
+ * Re-annotates an edited plain text document by processing only the part of the text the edit can affect.
+ * <p>
+ * The edit is widened to a window of whole sentences of the previous document: from the begin of the last sentence
+ * beginning with white space and with its first word before the edit to the end of the first sentence ending after
+ * it that has white space after the edit and after its delimiter, and further widened while a previous
+ * {@link Token}, {@link Sentence} or {@link NamedEntity} crosses a window border. Whether a delimiter ends a sentence
+ * depends on the word before it and, for abbreviations that are also words ({@code No. 5}), on the first character
+ * of the word after it. Both are outside the edit for the delimiters at the borders, so they split the text the same
+ * way before and after it.
+ * Only the window text is processed by the annotators; the previous elements outside the window are copied, the ones
+ * after it shifted by the length change of the edit. Other element types are not copied.
+ * <p>
+ * The result equals processing the whole edited text as long as the annotators do not add elements spanning a sentence
+ * delimiter and the white space after it. The annotators are not initialized or destroyed here.
+ * <pre>
+ * IncrementalAnnotator incremental = new IncrementalAnnotator(annotators);
+ * IeDocument edited = incremental.reprocess(document, IncrementalAnnotator.Edit.between(document.getText(), newText));
+ * </pre>
+ */
+@SuppressWarnings("unchecked")
+public final class IncrementalAnnotator {
+
+    private final List<Annotator> annotators;
+
+    public IncrementalAnnotator(List<Annotator> annotators) {
+        this.annotators = new ArrayList<>(annotators);
+    }
+
+    /**
+     * Returns a new document with the edited text and its Tokens, Sentences and NamedEntities.
+     *
+     * @param previous the processed document, its text must equal its content
+     * @param edit     the edit of the previous text
+     */
+    public IeDocument reprocess(Document previous, Edit edit) {
+        checkEdit(previous, edit);
+        return process(previous, edit, findWindow(previous, edit));
+    }
+
+    /**
+     * Returns a new document with the edited text and its Tokens, Sentences and NamedEntities, re-annotating a window
+     * already found for the edit.
+     *
+     * @param previous the processed document, its text must equal its content
+     * @param edit     the edit of the previous text
+     * @param window   the window returned by {@link #findWindow(Document, Edit)} for the same document and edit
+     */
+    public IeDocument reprocess(Document previous, Edit edit, Window window) {
+        checkEdit(previous, edit);
+        if (window.getBegin() > edit.getBegin() || window.getEnd() < edit.getEnd()
+                || window.getEnd() > previous.getText().length()) {
+            throw new IllegalArgumentException("Window " + window + " does not cover the edit [" + edit.getBegin()
+                    + ", " + edit.getEnd() + ")");
+        }
+        return process(previous, edit, window);
+    }
+
+    private static void checkEdit(Document previous, Edit edit) {
+        String text = previous.getText();
+        if (!text.equals(previous.getContent())) {
+            throw new IllegalArgumentException("Only plain text documents can be re-annotated incrementally");
+        }
+        if (edit.getEnd() > text.length()) {
+            throw new IllegalArgumentException("Edit [" + edit.getBegin() + ", " + edit.getEnd()
+                    + ") is outside of the text of length " + text.length());
+        }
+    }
+
+    private IeDocument process(Document previous, Edit edit, Window window) {
+        String editedText = edit.apply(previous.getText());
+        int shift = edit.getLengthChange();
+
+        IeDocument windowDocument = null;
+        if (window.getEnd() + shift > window.getBegin()) {
+            String windowText = editedText.substring(window.getBegin(), window.getEnd() + shift);
+            windowDocument = DocumentFactory.createIeDocument(windowText, windowText);
+            for (Annotator annotator : annotators) {
+                annotator.process(windowDocument);
+            }
+        }
+
+        IeDocument document = DocumentFactory.createIeDocument(editedText, editedText);
+        copy(previous, windowDocument, document, Token.class, window, shift);
+        copy(previous, windowDocument, document, Sentence.class, window, shift);
+        copy(previous, windowDocument, document, NamedEntity.class, window, shift);
+        return document;
+    }
+
+    /**
+     * Returns the span of the previous text that is re-annotated for the edit.
+     */
+    public Window findWindow(Document previous, Edit edit) {
+        String text = previous.getText();
+        List<Sentence> sentences = ElementIndex.of(previous, Sentence.class).getElements();
+        int begin = 0;
+        int end = text.length();
+        for (Sentence sentence : sentences) {
+            // The word after the previous delimiter must begin before the edit
+            if (sentence.getBegin() < edit.getBegin() && isSeparated(text, sentence.getBegin())
+                    && skipWhitespace(text, sentence.getBegin()) < edit.getBegin()) {
+                begin = sentence.getBegin();
+            }
+            // The word before the delimiter must not reach into the edit
+            if (sentence.getEnd() >= edit.getEnd() && isSeparated(text, sentence.getEnd() + 1)
+                    && containsWhitespace(text, edit.getEnd(), sentence.getEnd())) {
+                end = sentence.getEnd();
+                break;
+            }
+        }
+
+        List<ElementIndex<? extends Element>> indexes = new ArrayList<>();
+        indexes.add(ElementIndex.of(previous, Token.class));
+        indexes.add(ElementIndex.of(previous, Sentence.class));
+        indexes.add(ElementIndex.of(previous, NamedEntity.class));
+        boolean widened;
+        do {
+            widened = false;
+            for (ElementIndex<? extends Element> index : indexes) {
+                for (Element element : index.findCovering(begin, begin)) {
+                    if (element.getBegin() < begin && element.getEnd() > begin) {
+                        begin = element.getBegin();
+                        widened = true;
+                    }
+                }
+                for (Element element : index.findCovering(end, end)) {
+                    if (element.getBegin() < end && element.getEnd() > end) {
+                        end = element.getEnd();
+                        widened = true;
+                    }
+                }
+            }
+        } while (widened);
+        return new Window(Math.min(begin, edit.getBegin()), Math.max(end, edit.getEnd()));
+    }
+
+    /**
+     * Returns true if no word or email can continue over the offset: at the text borders and at white space.
+     */
+    private static boolean isSeparated(String text, int offset) {
+        return offset <= 0 || offset >= text.length() || Character.isWhitespace(text.charAt(offset));
+    }
+
+    /**
+     * Returns the offset of the first character that is not white space from the offset on, the text length if none.
+     */
+    private static int skipWhitespace(String text, int offset) {
+        while (offset < text.length() && Character.isWhitespace(text.charAt(offset))) {
+            offset++;
+        }
+        return offset;
+    }
+
+    private static boolean containsWhitespace(String text, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the previous elements outside the window and the window elements to the edited document.
+     */
+    private static <T extends Element> void copy(Document previous, Document windowDocument, Document document,
+            Class<T> type, Window window, int shift) {
+        List<T> after = new ArrayList<>();
+        for (T element : ElementIndex.of(previous, type).getElements()) {
+            if (element.getEnd() <= window.getBegin() && element.getBegin() < window.getBegin()) {
+                document.add(descriptor(element, element.getBegin(), element.getEnd()));
+            } else if (element.getBegin() >= window.getEnd() && element.getEnd() > window.getEnd()) {
+                after.add(element);
+            }
+        }
+        if (windowDocument != null) {
+            for (T element : ElementIndex.of(windowDocument, type).getElements()) {
+                document.add(descriptor(element, window.getBegin() + element.getBegin(), window.getBegin() + element.getEnd()));
+            }
+        }
+        for (T element : after) {
+            document.add(descriptor(element, element.getBegin() + shift, element.getEnd() + shift));
+        }
+    }
+
+    private static Element.ElementDescriptor descriptor(Element element, int begin, int end) {
+        if (element instanceof NamedEntity) {
+            return NamedEntity.descriptor()
+                    .setBegin(begin)
+                    .setEnd(end)
+                    .setType(((NamedEntity) element).getType());
+        } else if (element instanceof Sentence) {
+            return Sentence.descriptor()
+                    .setBegin(begin)
+                    .setEnd(end);
+        }
+        return Token.descriptor()
+                .setBegin(begin)
+                .setEnd(end);
+    }
+
+    /**
+     * Replacement of the text in [begin, end) of a document.
+     */
+    public static final class Edit {
+
+        private final int begin;
+        private final int end;
+        private final String replacement;
+
+        public Edit(int begin, int end, String replacement) {
+            if (begin < 0 || end < begin) {
+                throw new IllegalArgumentException("Invalid edit span [" + begin + ", " + end + ")");
+            }
+            this.begin = begin;
+            this.end = end;
+            this.replacement = replacement;
+        }
+
+        /**
+         * Returns the single edit turning the old text into the new one: the span between their common prefix and
+         * common suffix.
+         */
+        public static Edit between(String oldText, String newText) {
+            int maxPrefix = Math.min(oldText.length(), newText.length());
+            int prefix = 0;
+            while (prefix < maxPrefix && oldText.charAt(prefix) == newText.charAt(prefix)) {
+                prefix++;
+            }
+            int maxSuffix = maxPrefix - prefix;
+            int suffix = 0;
+            while (suffix < maxSuffix
+                    && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)) {
+                suffix++;
+            }
+            return new Edit(prefix, oldText.length() - suffix, newText.substring(prefix, newText.length() - suffix));
+        }
+
+        public int getBegin() {
+            return begin;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getReplacement() {
+            return replacement;
+        }
+
+        /**
+         * Returns the difference between the edited and the previous text length.
+         */
+        public int getLengthChange() {
+            return replacement.length() - (end - begin);
+        }
+
+        public String apply(String text) {
+            return text.substring(0, begin) + replacement + text.substring(end);
+        }
+    }
+
+    /**
+     * Span of the previous text that is re-annotated.
+     */
+    public static final class Window {
+
+        private final int begin;
+        private final int end;
+
+        Window(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        public int getBegin() {
+            return begin;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + begin + ", " + end + ")";
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Level-guarded logging facade for the lesson helpers.
+ * <p>
+ * Messages use the {@link java.text.MessageFormat} placeholders {@code {0}, {1}} (quotes included) or SLF4J-style
+ * {@code {}} placeholders. Arguments are converted with {@link String#valueOf(Object)}, without MessageFormat's
+ * number grouping. Each message pattern is compiled once and cached, and nothing is formatted or converted to
+ * string unless INFO is enabled. Fixed-arity overloads avoid the varargs array for short messages.
+ * <p>
+ * {@link #trace} is meant for per-element lines inside loops: in quiet mode they are dropped and only the summary
+ * lines logged with {@link #info} remain. Quiet mode is enabled with {@link #setQuiet(boolean)} or the
+ * {@code lesson.log.quiet} system property.
+ */
+public final class LessonLogger {
+
+    private static final Map<String, CompiledFormat> formats = new ConcurrentHashMap<>();
+    private static volatile boolean quiet = Boolean.getBoolean("lesson.log.quiet");
+
+    private final Log log;
+
+    public LessonLogger(Log log) {
+        this.log = log;
+    }
+
+    public static boolean isQuiet() {
+        return quiet;
+    }
+
+    public static void setQuiet(boolean quiet) {
+        LessonLogger.quiet = quiet;
+    }
+
+    public boolean isInfoEnabled() {
+        return log.isInfoEnabled();
+    }
+
+    /**
+     * Returns true if per-element lines are logged.
+     */
+    public boolean isTraceEnabled() {
+        return !quiet && log.isInfoEnabled();
+    }
+
+    public void info(String message) {
+        if (log.isInfoEnabled()) {
+            log.info(format(message).format(0, null, null, null));
+        }
+    }
+
+    public void info(String message, Object arg) {
+        if (log.isInfoEnabled()) {
+            log.info(format(message).format(1, arg, null, null));
+        }
+    }
+
+    public void info(String message, Object arg0, Object arg1) {
+        if (log.isInfoEnabled()) {
+            log.info(format(message).format(2, arg0, arg1, null));
+        }
+    }
+
+    public void info(String message, Object... args) {
+        if (log.isInfoEnabled()) {
+            log.info(format(message, args));
+        }
+    }
+
+    public void warn(String message, Object arg) {
+        if (log.isWarnEnabled()) {
+            log.warn(format(message).format(1, arg, null, null));
+        }
+    }
+
+    public void trace(String message) {
+        if (isTraceEnabled()) {
+            info(message);
+        }
+    }
+
+    public void trace(String message, Object arg) {
+        if (isTraceEnabled()) {
+            info(message, arg);
+        }
+    }
+
+    public void trace(String message, Object arg0, Object arg1) {
+        if (isTraceEnabled()) {
+            info(message, arg0, arg1);
+        }
+    }
+
+    public void trace(String message, Object... args) {
+        if (isTraceEnabled()) {
+            info(message, args);
+        }
+    }
+
+    /**
+     * Formats the message the way it would be logged.
+     */
+    static String format(String message, Object... args) {
+        return format(message).format(args.length, args.length > 0 ? args[0] : null, args.length > 1 ? args[1] : null, args);
+    }
+
+    private static CompiledFormat format(String message) {
+        CompiledFormat format = formats.get(message);
+        if (format == null) {
+            format = formats.computeIfAbsent(message, CompiledFormat::compile);
+        }
+        return format;
+    }
+
+    /**
+     * Message pattern split into literal parts and argument indexes.
+     */
+    private static final class CompiledFormat {
+
+        private final String[] literals;
+        private final int[] arguments;
+
+        private CompiledFormat(String[] literals, int[] arguments) {
+            this.literals = literals;
+            this.arguments = arguments;
+        }
+
+        static CompiledFormat compile(String message) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> arguments = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int next = 0;
+            boolean quoted = false;
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (c == '\'') {
+                    if (i + 1 < message.length() && message.charAt(i + 1) == '\'') {
+                        literal.append('\'');
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (c == '{' && !quoted) {
+                    int close = message.indexOf('}', i);
+                    int index = close < 0 ? -1 : parseIndex(message, i + 1, close, next);
+                    if (index < 0) {
+                        literal.append(c);
+                        continue;
+                    }
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    arguments.add(index);
+                    next = index + 1;
+                    i = close;
+                } else {
+                    literal.append(c);
+                }
+            }
+            literals.add(literal.toString());
+            int[] indexes = new int[arguments.size()];
+            for (int i = 0; i < indexes.length; i++) {
+                indexes[i] = arguments.get(i);
+            }
+            return new CompiledFormat(literals.toArray(new String[0]), indexes);
+        }
+
+        /**
+         * Returns the argument index of "{}" or "{N}", or -1 if the braces hold something else.
+         */
+        private static int parseIndex(String message, int from, int to, int next) {
+            if (from == to) {
+                return next;
+            }
+            int index = 0;
+            for (int i = from; i < to; i++) {
+                char c = message.charAt(i);
+                if (c < '0' || c > '9' || to - from > 4) {
+                    return -1;
+                }
+                index = index * 10 + c - '0';
+            }
+            return index;
+        }
+
+        /**
+         * Formats with the first two arguments passed directly and the others taken from the array, if any.
+         * Placeholders without an argument are kept.
+         */
+        String format(int count, Object arg0, Object arg1, Object[] args) {
+            if (arguments.length == 0) {
+                return literals[0];
+            }
+            StringBuilder result = new StringBuilder(64);
+            for (int i = 0; i < arguments.length; i++) {
+                result.append(literals[i]);
+                int index = arguments[i];
+                if (index >= count) {
+                    result.append('{').append(index).append('}');
+                } else if (index == 0) {
+                    result.append(arg0);
+                } else if (index == 1) {
+                    result.append(arg1);
+                } else {
+                    result.append(args[index]);
+                }
+            }
+            result.append(literals[arguments.length]);
+            return result.toString();
+        }
+    }
+
+}
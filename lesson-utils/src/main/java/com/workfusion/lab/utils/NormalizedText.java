@@ -0,0 +1,281 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * UTF-8 document text with line endings normalized the way {@code replaceAll("(\\r\\n|\\r|\\n)+", "\r\n")} does:
+ * every run of '\r' and '\n' characters becomes a single "\r\n".
+ * <p>
+ * The file is read in chunks and normalized while it is decoded, so neither the raw bytes nor the raw text are held
+ * in memory in full. The positions of the rewritten runs are kept to translate offsets in the normalized text back
+ * to offsets in the raw text (UTF-16 chars of the decoded file).
+ */
+public final class NormalizedText {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final String text;
+
+    /**
+     * Rewritten runs ordered by position: normalized start, raw start and raw end of each run.
+     */
+    private final int[] runStarts;
+    private final int[] runRawStarts;
+    private final int[] runRawEnds;
+
+    private NormalizedText(String text, int[] runStarts, int[] runRawStarts, int[] runRawEnds) {
+        this.text = text;
+        this.runStarts = runStarts;
+        this.runRawStarts = runRawStarts;
+        this.runRawEnds = runRawEnds;
+    }
+
+    /**
+     * Reads and normalizes the UTF-8 file. Malformed input is replaced with U+FFFD as {@code new String(bytes, UTF_8)}
+     * does.
+     */
+    public static NormalizedText read(Path path) throws IOException {
+        return read(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    static NormalizedText read(Path path, int bufferSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+            CharBuffer chars = CharBuffer.allocate(bufferSize);
+            Normalizer normalizer = new Normalizer((int) Math.min(channel.size(), Integer.MAX_VALUE - 8));
+
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(bytes) < 0;
+                bytes.flip();
+                // Decoding stops on a full char buffer, so drain it until all complete sequences are consumed
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, endOfInput);
+                    normalizer.append(chars);
+                } while (result.isOverflow());
+                bytes.compact();
+            }
+            while (decoder.flush(chars).isOverflow()) {
+                normalizer.append(chars);
+            }
+            normalizer.append(chars);
+            return normalizer.finish();
+        }
+    }
+
+    /**
+     * Normalizes a string, for text that is already in memory.
+     */
+    public static NormalizedText of(CharSequence raw) {
+        Normalizer normalizer = new Normalizer(raw.length());
+        CharBuffer chars = CharBuffer.allocate(raw.length()).append(raw);
+        normalizer.append(chars);
+        return normalizer.finish();
+    }
+
+    /**
+     * Opens a reader of the normalized text of the UTF-8 file, for files too large to be read with
+     * {@link #read(Path)}. The reader returns the same chars as {@link #getText()} would, without holding them.
+     */
+    public static Reader newReader(Path path) throws IOException {
+        return new NormalizingReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8));
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Translates an offset in the normalized text into the offset in the raw text. Offsets inside a normalized
+     * "\r\n" map into the raw run it replaces.
+     */
+    public int toRawOffset(int offset) {
+        if (offset < 0 || offset > text.length()) {
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", Length: " + text.length());
+        }
+        int run = Arrays.binarySearch(runStarts, offset);
+        if (run < 0) {
+            run = -run - 2;
+        }
+        if (run < 0) {
+            return offset;
+        }
+        int delta = offset - runStarts[run];
+        if (delta < 2) {
+            return runRawStarts[run] + Math.min(delta, runRawEnds[run] - runRawStarts[run]);
+        }
+        return runRawEnds[run] + delta - 2;
+    }
+
+    /**
+     * Normalizes the chars of the underlying reader as they are read.
+     */
+    private static final class NormalizingReader extends Reader {
+
+        private final Reader in;
+        private final char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private boolean endOfInput;
+        private boolean inRun;
+
+        /**
+         * Chars to return before reading on: the "\r\n" ending a run and the char after it.
+         */
+        private final char[] queue = new char[3];
+        private int queueStart;
+        private int queueEnd;
+
+        NormalizingReader(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) throws IOException {
+            int count = 0;
+            while (count < length) {
+                if (queueStart < queueEnd) {
+                    target[offset + count++] = queue[queueStart++];
+                    continue;
+                }
+                if (position == limit && !fill()) {
+                    if (!inRun) {
+                        break;
+                    }
+                    inRun = false;
+                    enqueueLineBreak();
+                    continue;
+                }
+                char c = buffer[position++];
+                if (c == '\r' || c == '\n') {
+                    inRun = true;
+                } else if (inRun) {
+                    inRun = false;
+                    enqueueLineBreak();
+                    queue[queueEnd++] = c;
+                } else {
+                    target[offset + count++] = c;
+                }
+            }
+            return count == 0 && length > 0 ? -1 : count;
+        }
+
+        private void enqueueLineBreak() {
+            queueStart = 0;
+            queueEnd = 0;
+            queue[queueEnd++] = '\r';
+            queue[queueEnd++] = '\n';
+        }
+
+        private boolean fill() throws IOException {
+            if (endOfInput) {
+                return false;
+            }
+            int read = in.read(buffer, 0, buffer.length);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Single pass normalizer fed with decoded chunks.
+     */
+    private static final class Normalizer {
+
+        private final StringBuilder text;
+        private int rawOffset;
+        private int runRawStart = -1;
+
+        private int runs;
+        private int[] runStarts = new int[16];
+        private int[] runRawStarts = new int[16];
+        private int[] runRawEnds = new int[16];
+
+        Normalizer(int capacity) {
+            this.text = new StringBuilder(capacity);
+        }
+
+        /**
+         * Appends the decoded chars and clears the buffer.
+         */
+        void append(CharBuffer chars) {
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c == '\r' || c == '\n') {
+                    if (runRawStart < 0) {
+                        runRawStart = rawOffset;
+                    }
+                } else {
+                    endRun();
+                    text.append(c);
+                }
+                rawOffset++;
+            }
+            chars.clear();
+        }
+
+        private void endRun() {
+            if (runRawStart < 0) {
+                return;
+            }
+            // Two char runs keep the length, the offsets around them need no mapping
+            if (rawOffset - runRawStart != 2) {
+                addRun(text.length(), runRawStart, rawOffset);
+            }
+            text.append('\r').append('\n');
+            runRawStart = -1;
+        }
+
+        private void addRun(int start, int rawStart, int rawEnd) {
+            if (runs == runStarts.length) {
+                runStarts = Arrays.copyOf(runStarts, runs * 2);
+                runRawStarts = Arrays.copyOf(runRawStarts, runs * 2);
+                runRawEnds = Arrays.copyOf(runRawEnds, runs * 2);
+            }
+            runStarts[runs] = start;
+            runRawStarts[runs] = rawStart;
+            runRawEnds[runs] = rawEnd;
+            runs++;
+        }
+
+        NormalizedText finish() {
+            endRun();
+            return new NormalizedText(text.toString(),
+                    Arrays.copyOf(runStarts, runs),
+                    Arrays.copyOf(runRawStarts, runs),
+                    Arrays.copyOf(runRawEnds, runs));
+        }
+    }
+
+}
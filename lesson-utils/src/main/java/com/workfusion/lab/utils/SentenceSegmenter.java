@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single pass sentence boundary scanner.
+ * <p>
+ * A sentence ends at {@code .}, {@code !} or {@code ?}, like with {@code [.!?]}, except for periods that belong to a
+ * word: periods between letters or digits ({@code 3.14}, {@code john.doe@mail.com}), the period of a single capital
+ * initial ({@code J. Smith}) and the period after a known abbreviation ({@code Dr.}, {@code e.g.}). Abbreviations
+ * that are also ordinary words ({@code no}, {@code est}) only keep the sentence going when a digit or a lower case
+ * word follows ({@code No. 5}, {@code et al. found}). Abbreviations are matched case-insensitively in an
+ * open-addressing hash set directly against the text, without creating substrings. Sentences do not include the
+ * terminating character and empty sentences are skipped.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class SentenceSegmenter {
+
+    /**
+     * Abbreviations recognized by default, lower case without the final period.
+     */
+    public static final List<String> DEFAULT_ABBREVIATIONS = Arrays.asList(
+            "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "vs", "rev", "gen", "gov", "sen", "rep",
+            "e.g", "i.e", "cf", "approx", "dept", "inc", "ltd", "corp",
+            "jan", "feb", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "dec",
+            "a.m", "p.m", "u.s", "u.k");
+
+    /**
+     * Abbreviations recognized by default that are also ordinary words, lower case without the final period.
+     */
+    public static final List<String> DEFAULT_WORD_ABBREVIATIONS = Arrays.asList(
+            "no", "co", "est", "al", "fig", "mar");
+
+    private static final SentenceSegmenter DEFAULT = new SentenceSegmenter(DEFAULT_ABBREVIATIONS,
+            DEFAULT_WORD_ABBREVIATIONS);
+
+    /**
+     * Open-addressing table of the abbreviations, null for empty slots. The length is a power of two.
+     */
+    private final String[] abbreviations;
+    /**
+     * Marks the slots of the abbreviations that are also words.
+     */
+    private final boolean[] words;
+    private final int maxAbbreviationLength;
+
+    /**
+     * @param abbreviations the abbreviations without the final period, matched case-insensitively
+     */
+    public SentenceSegmenter(Collection<String> abbreviations) {
+        this(abbreviations, Collections.emptyList());
+    }
+
+    /**
+     * @param abbreviations     the abbreviations without the final period, matched case-insensitively
+     * @param wordAbbreviations the abbreviations that are also ordinary words, only followed by a digit or a lower
+     *                          case word within a sentence
+     */
+    public SentenceSegmenter(Collection<String> abbreviations, Collection<String> wordAbbreviations) {
+        int capacity = Integer.highestOneBit(Math.max(4, (abbreviations.size() + wordAbbreviations.size()) * 2 - 1)) << 1;
+        this.abbreviations = new String[capacity];
+        this.words = new boolean[capacity];
+        int maxLength = 0;
+        for (String abbreviation : abbreviations) {
+            maxLength = Math.max(maxLength, add(abbreviation, false));
+        }
+        for (String abbreviation : wordAbbreviations) {
+            maxLength = Math.max(maxLength, add(abbreviation, true));
+        }
+        this.maxAbbreviationLength = maxLength;
+    }
+
+    private int add(String abbreviation, boolean word) {
+        String key = abbreviation.toLowerCase();
+        int mask = abbreviations.length - 1;
+        int slot = hash(key, 0, key.length()) & mask;
+        while (abbreviations[slot] != null && !abbreviations[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        abbreviations[slot] = key;
+        words[slot] = word;
+        return key.length();
+    }
+
+    /**
+     * Returns the segmenter with {@link #DEFAULT_ABBREVIATIONS}.
+     */
+    public static SentenceSegmenter getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Receives the sentence spans.
+     */
+    public interface SpanConsumer {
+
+        void accept(int begin, int end);
+    }
+
+    /**
+     * Reports the non-empty sentences of the text in order.
+     */
+    public void segment(CharSequence text, SpanConsumer consumer) {
+        int length = text.length();
+        int begin = 0;
+        for (int i = 0; i < length; i++) {
+            if (isBoundary(text, i)) {
+                if (i > begin) {
+                    consumer.accept(begin, i);
+                }
+                begin = i + 1;
+            }
+        }
+        if (length > begin) {
+            consumer.accept(begin, length);
+        }
+    }
+
+    /**
+     * Returns true if the character at the index ends a sentence.
+     */
+    public boolean isBoundary(CharSequence text, int index) {
+        char c = text.charAt(index);
+        if (c == '!' || c == '?') {
+            return true;
+        }
+        if (c != '.') {
+            return false;
+        }
+        // Inner period of a number, an abbreviation, a host name or an e-mail address: "3.14", "e.g", "john.doe"
+        if (index > 0 && index + 1 < text.length() && isWordChar(text.charAt(index - 1)) && isWordChar(text.charAt(index + 1))) {
+            return false;
+        }
+        // The word before the period: letters, with inner periods as in "e.g"
+        int begin = index;
+        while (begin > 0 && (Character.isLetter(text.charAt(begin - 1))
+                || (text.charAt(begin - 1) == '.' && begin > 1 && begin < index && Character.isLetter(text.charAt(begin - 2))))) {
+            begin--;
+        }
+        int wordLength = index - begin;
+        if (wordLength == 0) {
+            return true;
+        }
+        if (wordLength == 1 && Character.isUpperCase(text.charAt(begin))) {
+            return false;
+        }
+        if (wordLength > maxAbbreviationLength) {
+            return true;
+        }
+        int slot = findAbbreviation(text, begin, index);
+        return slot < 0 || words[slot] && !continuesSentence(text, index + 1);
+    }
+
+    /**
+     * Returns the slot of the abbreviation, or -1 if the word is not one.
+     */
+    private int findAbbreviation(CharSequence text, int begin, int end) {
+        int mask = abbreviations.length - 1;
+        int slot = hash(text, begin, end) & mask;
+        String candidate;
+        while ((candidate = abbreviations[slot]) != null) {
+            if (regionMatches(candidate, text, begin, end)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if the first non-whitespace character from the index is a digit or a lower case letter.
+     */
+    private static boolean continuesSentence(CharSequence text, int index) {
+        int length = text.length();
+        while (index < length && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index < length && (Character.isDigit(text.charAt(index)) || Character.isLowerCase(text.charAt(index)));
+    }
+
+    private static boolean regionMatches(String key, CharSequence text, int begin, int end) {
+        if (key.length() != end - begin) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != Character.toLowerCase(text.charAt(begin + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int begin, int end) {
+        int hash = 0;
+        for (int i = begin; i < end; i++) {
+            hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash ^ hash >>> 16;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+}
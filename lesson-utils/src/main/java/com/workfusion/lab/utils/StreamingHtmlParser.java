@@ -0,0 +1,1294 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.DocumentType;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+import org.jsoup.select.NodeVisitor;
+
+/**
+ * Streaming HTML parser: tokenizes the HTML into start-tag, end-tag and text events and reports them to a
+ * {@link NodeVisitor} in the same head/tail order a traversal of the {@code Jsoup.parse} DOM would.
+ * <p>
+ * Only the stack of open elements and the list of active formatting elements are kept, each node is reported as a
+ * detached jsoup node and dropped, so memory does not depend on the document size. The tree construction follows the
+ * jsoup HTML tree builder for implied html/head/body elements, implied end tags, paragraph and list item closing,
+ * table sections, rows and cells, and formatting elements: a formatting element closed by a block is reopened for the
+ * following content, and a misnested formatting end tag closes the elements opened after it.
+ * <p>
+ * Constructs that make jsoup move already parsed nodes cannot be reported in order: a formatting end tag with a block
+ * opened after the formatting element (the adoption agency moving the block), content foster parented out of a table,
+ * head elements after &lt;/head&gt;, attributes merged into html or body, and the select, frameset and plaintext
+ * elements jsoup parses in modes of their own. {@link #parse()} stops and returns false on them, the caller has to
+ * discard what was reported and build the DOM instead.
+ */
+final class StreamingHtmlParser {
+
+    private enum Mode {
+        INITIAL, BEFORE_HEAD, IN_HEAD, AFTER_HEAD, IN_BODY, TEXT, IN_TABLE, IN_CAPTION, IN_COLUMN_GROUP,
+        IN_TABLE_BODY, IN_ROW, IN_CELL, AFTER_BODY, AFTER_AFTER_BODY
+    }
+
+    private enum TokenType {
+        START, END, TEXT, DATA, COMMENT, DOCTYPE, EOF
+    }
+
+    private static final Set<String> RAW_TEXT = set("script", "style", "xmp", "iframe", "noembed", "noframes");
+    private static final Set<String> RC_DATA = set("title", "textarea");
+    private static final Set<String> HEAD_EMPTY = set("base", "basefont", "bgsound", "command", "link", "meta");
+    private static final Set<String> HEAD_CONTENT = set("base", "basefont", "bgsound", "command", "link", "meta",
+            "noframes", "script", "style", "title");
+    private static final Set<String> CLOSES_P = set("address", "article", "aside", "blockquote", "center", "details",
+            "dir", "div", "dl", "fieldset", "figcaption", "figure", "footer", "header", "hgroup", "main", "menu", "nav",
+            "ol", "p", "section", "summary", "ul");
+    private static final Set<String> HEADINGS = set("h1", "h2", "h3", "h4", "h5", "h6");
+    private static final Set<String> BODY_EMPTY = set("area", "br", "embed", "img", "keygen", "wbr", "input", "param",
+            "source", "track");
+    private static final Set<String> BLOCK_END = set("address", "article", "aside", "blockquote", "button", "center",
+            "details", "dir", "div", "dl", "fieldset", "figcaption", "figure", "footer", "header", "hgroup", "listing",
+            "main", "menu", "nav", "ol", "pre", "section", "summary", "ul", "form");
+    private static final Set<String> BODY_IGNORED_START = set("caption", "col", "colgroup", "frame", "head", "tbody",
+            "td", "tfoot", "th", "thead", "tr");
+    private static final Set<String> IMPLIED_END = set("dd", "dt", "li", "optgroup", "option", "p", "rb", "rp", "rt",
+            "rtc");
+    private static final Set<String> SCOPE_BASE = set("applet", "caption", "html", "marquee", "object", "table", "td",
+            "th", "template");
+    private static final Set<String> TABLE_SCOPE = set("html", "table", "template");
+    private static final Set<String> TABLE_SECTIONS = set("tbody", "tfoot", "thead");
+    private static final Set<String> TABLE_PARTS = set("caption", "col", "colgroup", "tbody", "tfoot", "thead");
+    private static final Set<String> CELLS = set("td", "th");
+    private static final Set<String> FORMATTING = set("b", "big", "code", "em", "font", "i", "s", "small", "strike",
+            "strong", "tt", "u");
+    private static final Set<String> ADOPTION = set("a", "b", "big", "code", "em", "font", "i", "nobr", "s", "small",
+            "strike", "strong", "tt", "u");
+    private static final Set<String> MARKER_ELEMENTS = set("applet", "marquee", "object");
+    private static final Set<String> FOSTER_PARENTS = set("table", "tbody", "tfoot", "thead", "tr");
+    private static final Set<String> OWN_MODE = set("select", "frameset", "plaintext");
+    private static final Set<String> SPECIAL = set("address", "applet", "area", "article", "aside", "base", "basefont",
+            "bgsound", "blockquote", "body", "br", "button", "caption", "center", "col", "colgroup", "command", "dd",
+            "details", "dir", "div", "dl", "dt", "embed", "fieldset", "figcaption", "figure", "footer", "form", "frame",
+            "frameset", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hgroup", "hr", "html", "iframe", "img",
+            "input", "isindex", "li", "link", "listing", "marquee", "menu", "meta", "nav", "noembed", "noframes",
+            "noscript", "object", "ol", "p", "param", "plaintext", "pre", "script", "section", "select", "style",
+            "summary", "table", "tbody", "td", "textarea", "tfoot", "th", "thead", "title", "tr", "ul", "wbr", "xmp");
+
+    private final String html;
+    private final NodeVisitor visitor;
+
+    private final List<Element> stack = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    /**
+     * Active formatting elements, null for the markers of cells, captions and applet/marquee/object elements.
+     */
+    private final List<Element> formatting = new ArrayList<>();
+    private Mode mode = Mode.INITIAL;
+    private Mode originalMode;
+    /**
+     * Name of the self-closing element to close after the current token, as jsoup emits an end tag for it.
+     */
+    private String pendingEnd;
+
+    // tokenizer state
+    private int pos = 0;
+    private String rawTextEnd;
+    private TokenType type;
+    private String name;
+    private Attributes attributes;
+    private boolean selfClosing;
+    private String data;
+    private String publicId;
+    private String systemId;
+
+    StreamingHtmlParser(String html, NodeVisitor visitor) {
+        this.html = html;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Parses the whole HTML reporting nodes to the visitor.
+     *
+     * @return false if parsing stopped at a construct jsoup builds by moving already parsed nodes
+     */
+    boolean parse() {
+        try {
+            do {
+                read();
+                processToken();
+                if (pendingEnd != null) {
+                    type = TokenType.END;
+                    name = pendingEnd;
+                    pendingEnd = null;
+                    processToken();
+                }
+            } while (type != TokenType.EOF);
+        } catch (MovedNodesException e) {
+            return false;
+        }
+        while (!stack.isEmpty()) {
+            pop();
+        }
+        return true;
+    }
+
+    private void processToken() {
+        while (!process()) {
+            // the token is reprocessed in the new mode
+        }
+    }
+
+    // ---------------------------------------------------------------- tree construction
+
+    /**
+     * Processes the current token, returns false if it has to be reprocessed in the switched mode.
+     */
+    private boolean process() {
+        switch (mode) {
+            case INITIAL:
+                return initial();
+            case BEFORE_HEAD:
+                return beforeHead();
+            case IN_HEAD:
+                return inHead();
+            case AFTER_HEAD:
+                return afterHead();
+            case IN_BODY:
+                return inBody();
+            case TEXT:
+                return inText();
+            case IN_TABLE:
+                return inTable();
+            case IN_CAPTION:
+                return inCaption();
+            case IN_COLUMN_GROUP:
+                return inColumnGroup();
+            case IN_TABLE_BODY:
+                return inTableBody();
+            case IN_ROW:
+                return inRow();
+            case IN_CELL:
+                return inCell();
+            case AFTER_BODY:
+                return afterBody();
+            default:
+                return afterAfterBody();
+        }
+    }
+
+    private boolean initial() {
+        if (type == TokenType.DOCTYPE) {
+            leaf(new DocumentType(name, publicId, systemId, ""));
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (isWhitespace()) {
+            return true;
+        } else if (isStart("html")) {
+            insert("html", attributes);
+            mode = Mode.BEFORE_HEAD;
+        } else if (type == TokenType.END && !is("head", "body", "html", "br")) {
+            return true;
+        } else {
+            insert("html", new Attributes());
+            mode = Mode.BEFORE_HEAD;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean beforeHead() {
+        if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (isWhitespace() || type == TokenType.DOCTYPE) {
+            return true;
+        } else if (isStart("html")) {
+            return inBodyStart();
+        } else if (isStart("head")) {
+            insert("head", attributes);
+            mode = Mode.IN_HEAD;
+        } else if (type == TokenType.END && !is("head", "body", "html", "br")) {
+            return true;
+        } else {
+            insert("head", new Attributes());
+            mode = Mode.IN_HEAD;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inHead() {
+        if (isWhitespace()) {
+            text(data);
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (type == TokenType.DOCTYPE || isStart("head")) {
+            return true;
+        } else if (isStart("html")) {
+            return inBodyStart();
+        } else if (type == TokenType.START && HEAD_CONTENT.contains(name)) {
+            headContent();
+        } else if (isEnd("head")) {
+            pop();
+            mode = Mode.AFTER_HEAD;
+        } else if (type == TokenType.END && !is("body", "html", "br")) {
+            return true;
+        } else {
+            pop();
+            mode = Mode.AFTER_HEAD;
+            return false;
+        }
+        return true;
+    }
+
+    private void headContent() {
+        if (HEAD_EMPTY.contains(name)) {
+            empty(name, attributes);
+        } else {
+            rawText();
+        }
+    }
+
+    private void rawText() {
+        insert(name, attributes);
+        originalMode = mode;
+        mode = Mode.TEXT;
+    }
+
+    private boolean afterHead() {
+        if (isWhitespace()) {
+            text(data);
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (type == TokenType.DOCTYPE || isStart("head")) {
+            return true;
+        } else if (isStart("html")) {
+            return inBodyStart();
+        } else if (isStart("body")) {
+            insert("body", attributes);
+            mode = Mode.IN_BODY;
+        } else if (isStart("frameset")) {
+            throw new MovedNodesException();
+        } else if (type == TokenType.START && HEAD_CONTENT.contains(name)) {
+            // jsoup adds the element to the head element
+            throw new MovedNodesException();
+        } else if (type == TokenType.END && !is("body", "html")) {
+            return true;
+        } else {
+            insert("body", new Attributes());
+            mode = Mode.IN_BODY;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inBody() {
+        switch (type) {
+            case TEXT:
+            case DATA:
+                reconstructFormatting();
+                text(data);
+                return true;
+            case COMMENT:
+                leaf(new Comment(data, ""));
+                return true;
+            case START:
+                return inBodyStart();
+            case END:
+                return inBodyEnd();
+            default:
+                return true;
+        }
+    }
+
+    private boolean inBodyStart() {
+        if (is("html", "body")) {
+            Element element = name.equals("html") || stack.size() < 2 ? stack.get(0) : stack.get(1);
+            for (Attribute attribute : attributes) {
+                if (element.nodeName().equals(name) && !element.hasAttr(attribute.getKey())) {
+                    // jsoup adds the attribute to the element
+                    throw new MovedNodesException();
+                }
+            }
+            return true;
+        } else if (OWN_MODE.contains(name)) {
+            throw new MovedNodesException();
+        } else if (is("a")) {
+            if (getActiveFormatting("a") != null) {
+                processEnd("a");
+                // An "a" left open by the adoption agency is removed from the middle of the stack
+                if (names.contains("a")) {
+                    throw new MovedNodesException();
+                }
+            }
+            reconstructFormatting();
+            pushFormatting(insert(name, attributes));
+        } else if (FORMATTING.contains(name)) {
+            reconstructFormatting();
+            pushFormatting(insert(name, attributes));
+        } else if (is("nobr")) {
+            reconstructFormatting();
+            if (inScope("nobr")) {
+                processEnd("nobr");
+                reconstructFormatting();
+            }
+            pushFormatting(insert(name, attributes));
+        } else if (MARKER_ELEMENTS.contains(name)) {
+            reconstructFormatting();
+            insert(name, attributes);
+            formatting.add(null);
+        } else if (HEAD_CONTENT.contains(name)) {
+            headContent();
+        } else if (CLOSES_P.contains(name)) {
+            closeParagraph();
+            insert(name, attributes);
+        } else if (HEADINGS.contains(name)) {
+            closeParagraph();
+            if (HEADINGS.contains(current())) {
+                pop();
+            }
+            insert(name, attributes);
+        } else if (is("pre", "listing", "form", "plaintext")) {
+            closeParagraph();
+            insert(name, attributes);
+        } else if (is("li", "dd", "dt")) {
+            Set<String> items = name.equals("li") ? set("li") : set("dd", "dt");
+            for (int i = names.size() - 1; i >= 0; i--) {
+                String open = names.get(i);
+                if (items.contains(open)) {
+                    processEnd(open);
+                    break;
+                }
+                if (SPECIAL.contains(open) && !open.equals("address") && !open.equals("div") && !open.equals("p")) {
+                    break;
+                }
+            }
+            closeParagraph();
+            insert(name, attributes);
+        } else if (is("button")) {
+            if (inScope("button")) {
+                processEnd("button");
+                return false;
+            }
+            reconstructFormatting();
+            insert(name, attributes);
+        } else if (is("table")) {
+            closeParagraph();
+            insert(name, attributes);
+            mode = Mode.IN_TABLE;
+        } else if (BODY_EMPTY.contains(name)) {
+            reconstructFormatting();
+            empty(name, attributes);
+        } else if (is("hr")) {
+            closeParagraph();
+            empty(name, attributes);
+        } else if (is("image")) {
+            reconstructFormatting();
+            empty("img", attributes);
+        } else if (is("xmp")) {
+            closeParagraph();
+            reconstructFormatting();
+            rawText();
+        } else if (RAW_TEXT.contains(name) || RC_DATA.contains(name)) {
+            rawText();
+        } else if (is("option", "optgroup")) {
+            if (current().equals("option")) {
+                processEnd("option");
+            }
+            reconstructFormatting();
+            insert(name, attributes);
+        } else if (!BODY_IGNORED_START.contains(name)) {
+            reconstructFormatting();
+            insert(name, attributes);
+        }
+        return true;
+    }
+
+    private boolean inBodyEnd() {
+        if (is("body")) {
+            if (inScope("body")) {
+                mode = Mode.AFTER_BODY;
+            }
+        } else if (is("html")) {
+            if (inScope("body")) {
+                mode = Mode.AFTER_BODY;
+                return false;
+            }
+        } else if (BLOCK_END.contains(name)) {
+            if (inScope(name)) {
+                generateImpliedEndTags(null);
+                popUntil(name);
+            }
+        } else if (is("p")) {
+            if (!inScope("p", "button")) {
+                insert("p", new Attributes());
+                return false;
+            }
+            generateImpliedEndTags("p");
+            popUntil("p");
+        } else if (is("li")) {
+            if (inScope("li", "ol", "ul")) {
+                generateImpliedEndTags("li");
+                popUntil("li");
+            }
+        } else if (is("dd", "dt")) {
+            if (inScope(name)) {
+                generateImpliedEndTags(name);
+                popUntil(name);
+            }
+        } else if (HEADINGS.contains(name)) {
+            boolean inScope = false;
+            for (String heading : HEADINGS) {
+                inScope |= inScope(heading);
+            }
+            if (inScope) {
+                generateImpliedEndTags(name);
+                while (!stack.isEmpty() && !HEADINGS.contains(pop())) {
+                    // pop up to the heading
+                }
+            }
+        } else if (ADOPTION.contains(name)) {
+            adoptionAgency();
+        } else if (MARKER_ELEMENTS.contains(name)) {
+            if (inScope(name)) {
+                generateImpliedEndTags(null);
+                popUntil(name);
+                clearFormattingToLastMarker();
+            }
+        } else if (is("br")) {
+            reconstructFormatting();
+            empty("br", new Attributes());
+        } else {
+            anyOtherEndTag();
+        }
+        return true;
+    }
+
+    /**
+     * Closes a formatting element the way the jsoup adoption agency does when no block was opened after it: the
+     * elements opened after it are closed too, and the formatting ones among them are reopened for the following
+     * content by {@link #reconstructFormatting()}.
+     */
+    private void adoptionAgency() {
+        Element formattingElement = getActiveFormatting(name);
+        if (formattingElement == null) {
+            anyOtherEndTag();
+            return;
+        }
+        int index = indexOf(stack, formattingElement);
+        if (index < 0) {
+            formatting.remove(indexOf(formatting, formattingElement));
+            return;
+        }
+        if (!inScope(name)) {
+            return;
+        }
+        // jsoup looks for the furthest block among the first 64 open elements only
+        int limit = Math.min(stack.size(), 64);
+        for (int i = index + 1; i < limit; i++) {
+            if (SPECIAL.contains(names.get(i))) {
+                throw new MovedNodesException();
+            }
+        }
+        popUntil(name);
+        formatting.remove(indexOf(formatting, formattingElement));
+    }
+
+    private void anyOtherEndTag() {
+        for (int i = names.size() - 1; i >= 0; i--) {
+            String open = names.get(i);
+            if (open.equals(name)) {
+                generateImpliedEndTags(name);
+                popUntil(name);
+                return;
+            }
+            if (SPECIAL.contains(open)) {
+                return;
+            }
+        }
+    }
+
+    private boolean inText() {
+        if (type == TokenType.TEXT || type == TokenType.DATA) {
+            if (type == TokenType.DATA) {
+                leaf(new DataNode(data, ""));
+            } else {
+                text(data);
+            }
+            return true;
+        }
+        pop();
+        mode = originalMode;
+        return type != TokenType.EOF;
+    }
+
+    private boolean inTable() {
+        if (type == TokenType.TEXT && FOSTER_PARENTS.contains(current())) {
+            if (!isWhitespace()) {
+                // jsoup moves the text before the table
+                throw new MovedNodesException();
+            }
+            text(data);
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (type == TokenType.DOCTYPE) {
+            return true;
+        } else if (isStart("caption")) {
+            clearStackTo(TABLE_SCOPE);
+            formatting.add(null);
+            insert(name, attributes);
+            mode = Mode.IN_CAPTION;
+        } else if (isStart("colgroup")) {
+            clearStackTo(TABLE_SCOPE);
+            insert(name, attributes);
+            mode = Mode.IN_COLUMN_GROUP;
+        } else if (isStart("col")) {
+            clearStackTo(TABLE_SCOPE);
+            insert("colgroup", new Attributes());
+            mode = Mode.IN_COLUMN_GROUP;
+            return false;
+        } else if (type == TokenType.START && TABLE_SECTIONS.contains(name)) {
+            clearStackTo(TABLE_SCOPE);
+            insert(name, attributes);
+            mode = Mode.IN_TABLE_BODY;
+        } else if (type == TokenType.START && is("td", "th", "tr")) {
+            clearStackTo(TABLE_SCOPE);
+            insert("tbody", new Attributes());
+            mode = Mode.IN_TABLE_BODY;
+            return false;
+        } else if (isStart("table")) {
+            if (inTableScope("table")) {
+                popUntil("table");
+                resetInsertionMode();
+                return false;
+            }
+        } else if (type == TokenType.START && is("style", "script")) {
+            headContent();
+        } else if (isStart("input") && "hidden".equalsIgnoreCase(attributes.get("type"))) {
+            empty(name, attributes);
+        } else if (isEnd("table")) {
+            if (inTableScope("table")) {
+                popUntil("table");
+                resetInsertionMode();
+            }
+        } else if (type == TokenType.END && (TABLE_PARTS.contains(name) || is("body", "html", "td", "th", "tr"))) {
+            return true;
+        } else {
+            if (FOSTER_PARENTS.contains(current()) && (type == TokenType.START || type == TokenType.TEXT || is("p", "br"))) {
+                // jsoup inserts the elements before the table
+                throw new MovedNodesException();
+            }
+            return inBody();
+        }
+        return true;
+    }
+
+    private boolean inCaption() {
+        if (isEnd("caption") || (type == TokenType.START && (TABLE_PARTS.contains(name) || is("td", "th", "tr")))
+                || isEnd("table")) {
+            if (!inTableScope("caption")) {
+                return true;
+            }
+            generateImpliedEndTags(null);
+            popUntil("caption");
+            clearFormattingToLastMarker();
+            mode = Mode.IN_TABLE;
+            return isEnd("caption");
+        } else if (type == TokenType.END && (TABLE_PARTS.contains(name) || is("body", "html", "td", "th", "tr"))) {
+            return true;
+        }
+        return inBody();
+    }
+
+    private boolean inColumnGroup() {
+        if (isWhitespace()) {
+            text(data);
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (isStart("col")) {
+            empty(name, attributes);
+        } else if (isEnd("colgroup")) {
+            if (current().equals("colgroup")) {
+                pop();
+                mode = Mode.IN_TABLE;
+            }
+        } else if (isEnd("col") || type == TokenType.DOCTYPE) {
+            return true;
+        } else {
+            if (!current().equals("colgroup")) {
+                return true;
+            }
+            pop();
+            mode = Mode.IN_TABLE;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inTableBody() {
+        if (isStart("tr")) {
+            clearStackTo(set("tbody", "tfoot", "thead", "html", "template"));
+            insert(name, attributes);
+            mode = Mode.IN_ROW;
+        } else if (type == TokenType.START && is("td", "th")) {
+            clearStackTo(set("tbody", "tfoot", "thead", "html", "template"));
+            insert("tr", new Attributes());
+            mode = Mode.IN_ROW;
+            return false;
+        } else if (type == TokenType.END && TABLE_SECTIONS.contains(name)) {
+            if (inTableScope(name)) {
+                clearStackTo(set("tbody", "tfoot", "thead", "html", "template"));
+                pop();
+                mode = Mode.IN_TABLE;
+            }
+        } else if ((type == TokenType.START && TABLE_PARTS.contains(name)) || isEnd("table")) {
+            if (!inTableScope("tbody") && !inTableScope("thead") && !inTableScope("tfoot")) {
+                return true;
+            }
+            clearStackTo(set("tbody", "tfoot", "thead", "html", "template"));
+            pop();
+            mode = Mode.IN_TABLE;
+            return false;
+        } else if (type == TokenType.END && is("body", "caption", "col", "colgroup", "html", "td", "th", "tr")) {
+            return true;
+        } else {
+            return inTable();
+        }
+        return true;
+    }
+
+    private boolean inRow() {
+        if (type == TokenType.START && CELLS.contains(name)) {
+            clearStackTo(set("tr", "html", "template"));
+            insert(name, attributes);
+            mode = Mode.IN_CELL;
+            formatting.add(null);
+        } else if (isEnd("tr")) {
+            if (inTableScope("tr")) {
+                clearStackTo(set("tr", "html", "template"));
+                pop();
+                mode = Mode.IN_TABLE_BODY;
+            }
+        } else if ((type == TokenType.START && (TABLE_PARTS.contains(name) || is("tr"))) || isEnd("table")
+                || (type == TokenType.END && TABLE_SECTIONS.contains(name))) {
+            if (type == TokenType.END && TABLE_SECTIONS.contains(name) && !inTableScope(name)) {
+                return true;
+            }
+            if (!inTableScope("tr")) {
+                return true;
+            }
+            clearStackTo(set("tr", "html", "template"));
+            pop();
+            mode = Mode.IN_TABLE_BODY;
+            return false;
+        } else if (type == TokenType.END && is("body", "caption", "col", "colgroup", "html", "td", "th")) {
+            return true;
+        } else {
+            return inTable();
+        }
+        return true;
+    }
+
+    private boolean inCell() {
+        if (type == TokenType.END && CELLS.contains(name)) {
+            if (!inTableScope(name)) {
+                mode = Mode.IN_ROW;
+                return true;
+            }
+            generateImpliedEndTags(null);
+            popUntil(name);
+            clearFormattingToLastMarker();
+            mode = Mode.IN_ROW;
+        } else if (type == TokenType.END && is("body", "caption", "col", "colgroup", "html")) {
+            return true;
+        } else if ((type == TokenType.END && (TABLE_SECTIONS.contains(name) || is("table", "tr")))
+                || (type == TokenType.START && (TABLE_PARTS.contains(name) || is("td", "th", "tr")))) {
+            if (type == TokenType.END && !inTableScope(name)) {
+                return true;
+            }
+            if (type == TokenType.START && !inTableScope("td") && !inTableScope("th")) {
+                return true;
+            }
+            String cell = inTableScope("td") ? "td" : "th";
+            generateImpliedEndTags(null);
+            popUntil(cell);
+            clearFormattingToLastMarker();
+            mode = Mode.IN_ROW;
+            return false;
+        } else {
+            return inBody();
+        }
+        return true;
+    }
+
+    private boolean afterBody() {
+        if (isWhitespace() || isStart("html")) {
+            return inBody();
+        } else if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (type == TokenType.DOCTYPE) {
+            return true;
+        } else if (isEnd("html")) {
+            mode = Mode.AFTER_AFTER_BODY;
+        } else if (type != TokenType.EOF) {
+            mode = Mode.IN_BODY;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean afterAfterBody() {
+        if (type == TokenType.COMMENT) {
+            leaf(new Comment(data, ""));
+        } else if (isWhitespace() || type == TokenType.DOCTYPE || isStart("html")) {
+            return inBody();
+        } else if (type != TokenType.EOF) {
+            mode = Mode.IN_BODY;
+            return false;
+        }
+        return true;
+    }
+
+    private void resetInsertionMode() {
+        for (int i = names.size() - 1; i >= 0; i--) {
+            String open = names.get(i);
+            boolean last = i == 0;
+            if (CELLS.contains(open) && !last) {
+                mode = Mode.IN_CELL;
+            } else if (open.equals("tr")) {
+                mode = Mode.IN_ROW;
+            } else if (TABLE_SECTIONS.contains(open)) {
+                mode = Mode.IN_TABLE_BODY;
+            } else if (open.equals("caption")) {
+                mode = Mode.IN_CAPTION;
+            } else if (open.equals("colgroup")) {
+                mode = Mode.IN_COLUMN_GROUP;
+            } else if (open.equals("table")) {
+                mode = Mode.IN_TABLE;
+            } else if (open.equals("body") || last) {
+                mode = Mode.IN_BODY;
+            } else {
+                continue;
+            }
+            return;
+        }
+        mode = Mode.IN_BODY;
+    }
+
+    private void processEnd(String endName) {
+        TokenType savedType = type;
+        String savedName = name;
+        type = TokenType.END;
+        name = endName;
+        while (!process()) {
+            // reprocess in the switched mode
+        }
+        type = savedType;
+        name = savedName;
+    }
+
+    private void closeParagraph() {
+        if (inScope("p", "button")) {
+            processEnd("p");
+        }
+    }
+
+    private void generateImpliedEndTags(String excluded) {
+        while (!stack.isEmpty() && IMPLIED_END.contains(current()) && !current().equals(excluded)) {
+            pop();
+        }
+    }
+
+    private void popUntil(String elementName) {
+        while (!stack.isEmpty() && !pop().equals(elementName)) {
+            // pop up to the element
+        }
+    }
+
+    private void clearStackTo(Set<String> context) {
+        while (!stack.isEmpty() && !context.contains(current())) {
+            pop();
+        }
+    }
+
+    private boolean inScope(String elementName, String... extraBase) {
+        List<String> extra = Arrays.asList(extraBase);
+        for (int i = names.size() - 1; i >= 0; i--) {
+            String open = names.get(i);
+            if (open.equals(elementName)) {
+                return true;
+            }
+            if (SCOPE_BASE.contains(open) || extra.contains(open)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean inTableScope(String elementName) {
+        for (int i = names.size() - 1; i >= 0; i--) {
+            String open = names.get(i);
+            if (open.equals(elementName)) {
+                return true;
+            }
+            if (TABLE_SCOPE.contains(open)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- active formatting elements
+
+    private Element getActiveFormatting(String elementName) {
+        for (int i = formatting.size() - 1; i >= 0; i--) {
+            Element element = formatting.get(i);
+            if (element == null) {
+                break;
+            }
+            if (element.nodeName().equals(elementName)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the element to the list, dropping the earliest of three equal elements after the last marker.
+     */
+    private void pushFormatting(Element element) {
+        int seen = 0;
+        for (int i = formatting.size() - 1; i >= 0; i--) {
+            Element active = formatting.get(i);
+            if (active == null) {
+                break;
+            }
+            if (active.nodeName().equals(element.nodeName()) && active.attributes().equals(element.attributes())) {
+                seen++;
+            }
+            if (seen == 3) {
+                formatting.remove(i);
+                break;
+            }
+        }
+        formatting.add(element);
+    }
+
+    /**
+     * Reopens the active formatting elements closed since the last marker, in the order they were opened.
+     */
+    private void reconstructFormatting() {
+        int last = formatting.size() - 1;
+        if (last < 0 || formatting.get(last) == null || indexOf(stack, formatting.get(last)) >= 0) {
+            return;
+        }
+        int index = last;
+        boolean skip = false;
+        while (true) {
+            if (index == 0) {
+                skip = true;
+                break;
+            }
+            Element entry = formatting.get(--index);
+            if (entry == null || indexOf(stack, entry) >= 0) {
+                break;
+            }
+        }
+        while (true) {
+            if (!skip) {
+                index++;
+            }
+            skip = false;
+            Element entry = formatting.get(index);
+            Element element = new Element(Tag.valueOf(entry.nodeName()), "", entry.attributes().clone());
+            push(element);
+            formatting.set(index, element);
+            if (index == last) {
+                break;
+            }
+        }
+    }
+
+    private static int indexOf(List<Element> elements, Element element) {
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            if (elements.get(i) == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void clearFormattingToLastMarker() {
+        while (!formatting.isEmpty() && formatting.remove(formatting.size() - 1) != null) {
+            // remove up to the marker
+        }
+    }
+
+    // ---------------------------------------------------------------- node events
+
+    private String current() {
+        return names.isEmpty() ? "" : names.get(names.size() - 1);
+    }
+
+    private Element insert(String elementName, Attributes elementAttributes) {
+        Element element = new Element(Tag.valueOf(elementName), "", elementAttributes);
+        push(element);
+        if (selfClosing && type == TokenType.START && elementName.equals(name)) {
+            // jsoup closes self-closing elements with an end tag processed after the start tag
+            selfClosing = false;
+            pendingEnd = elementName;
+        }
+        return element;
+    }
+
+    private void push(Element element) {
+        visitor.head(element, stack.size());
+        stack.add(element);
+        names.add(element.nodeName());
+    }
+
+    private void empty(String elementName, Attributes elementAttributes) {
+        Element element = new Element(Tag.valueOf(elementName), "", elementAttributes);
+        visitor.head(element, stack.size());
+        visitor.tail(element, stack.size());
+    }
+
+    private String pop() {
+        Element element = stack.remove(stack.size() - 1);
+        visitor.tail(element, stack.size());
+        return names.remove(names.size() - 1);
+    }
+
+    private void text(String text) {
+        leaf(new TextNode(text, ""));
+    }
+
+    private void leaf(Node node) {
+        visitor.head(node, stack.size());
+        visitor.tail(node, stack.size());
+    }
+
+    private boolean is(String... candidates) {
+        for (String candidate : candidates) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStart(String tagName) {
+        return type == TokenType.START && tagName.equals(name);
+    }
+
+    private boolean isEnd(String tagName) {
+        return type == TokenType.END && tagName.equals(name);
+    }
+
+    private boolean isWhitespace() {
+        if (type != TokenType.TEXT) {
+            return false;
+        }
+        for (int i = 0; i < data.length(); i++) {
+            if (!isWhitespace(data.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- tokenizer
+
+    /**
+     * Reads the next token into the tokenizer state fields.
+     */
+    private void read() {
+        if (rawTextEnd != null) {
+            readRawText();
+            return;
+        }
+        int length = html.length();
+        int textStart = pos;
+        while (pos < length) {
+            int lt = html.indexOf('<', pos);
+            if (lt < 0) {
+                pos = length;
+                break;
+            }
+            if (lt + 1 < length && isMarkupStart(html.charAt(lt + 1), lt)) {
+                if (lt > textStart) {
+                    pos = lt;
+                    emitText(textStart, lt);
+                    return;
+                }
+                pos = lt;
+                if (readMarkup()) {
+                    return;
+                }
+                textStart = pos;
+                continue;
+            }
+            pos = lt + 1;
+        }
+        if (pos > textStart) {
+            emitText(textStart, pos);
+        } else {
+            type = TokenType.EOF;
+        }
+    }
+
+    private boolean isMarkupStart(char c, int lt) {
+        if (isAsciiLetter(c) || c == '!' || c == '?') {
+            return true;
+        }
+        return c == '/' && lt + 2 < html.length();
+    }
+
+    private void emitText(int from, int to) {
+        type = TokenType.TEXT;
+        data = Parser.unescapeEntities(html.substring(from, to), false);
+    }
+
+    /**
+     * Reads the markup at '&lt;', returns false if it does not produce a token.
+     */
+    private boolean readMarkup() {
+        char c = html.charAt(pos + 1);
+        if (c == '!') {
+            if (html.startsWith("<!--", pos)) {
+                int end = html.indexOf("-->", pos + 4);
+                int dataStart = pos + 4;
+                if (html.startsWith("<!-->", pos)) {
+                    end = pos + 2;
+                    dataStart = end;
+                } else if (html.startsWith("<!--->", pos)) {
+                    end = pos + 3;
+                    dataStart = end;
+                }
+                comment(dataStart, end < 0 ? html.length() : end, end < 0 ? html.length() : end + 3);
+            } else if (html.regionMatches(true, pos + 2, "DOCTYPE", 0, 7)) {
+                readDoctype();
+            } else {
+                bogusComment(pos + 2);
+            }
+            return true;
+        }
+        if (c == '?') {
+            bogusComment(pos + 1);
+            return true;
+        }
+        if (c == '/') {
+            char next = html.charAt(pos + 2);
+            if (next == '>') {
+                pos += 3;
+                return false;
+            }
+            if (!isAsciiLetter(next)) {
+                bogusComment(pos + 2);
+                return true;
+            }
+            return readTag(pos + 2, TokenType.END);
+        }
+        return readTag(pos + 1, TokenType.START);
+    }
+
+    private void comment(int from, int to, int next) {
+        type = TokenType.COMMENT;
+        data = html.substring(from, to);
+        pos = next;
+    }
+
+    private void bogusComment(int from) {
+        int end = html.indexOf('>', from);
+        comment(from, end < 0 ? html.length() : end, end < 0 ? html.length() : end + 1);
+    }
+
+    private void readDoctype() {
+        int end = html.indexOf('>', pos);
+        if (end < 0) {
+            end = html.length();
+        }
+        String[] parts = html.substring(pos + 9, end).trim().split("\\s+", 2);
+        type = TokenType.DOCTYPE;
+        name = parts[0].toLowerCase(Locale.ENGLISH);
+        publicId = "";
+        systemId = "";
+        if (parts.length > 1) {
+            List<String> ids = quoted(parts[1]);
+            if (parts[1].regionMatches(true, 0, "PUBLIC", 0, 6)) {
+                publicId = ids.size() > 0 ? ids.get(0) : "";
+                systemId = ids.size() > 1 ? ids.get(1) : "";
+            } else if (parts[1].regionMatches(true, 0, "SYSTEM", 0, 6)) {
+                systemId = ids.size() > 0 ? ids.get(0) : "";
+            }
+        }
+        pos = Math.min(end + 1, html.length());
+    }
+
+    private static List<String> quoted(String text) {
+        List<String> result = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char quote = text.charAt(i);
+            if (quote == '"' || quote == '\'') {
+                int end = text.indexOf(quote, i + 1);
+                if (end < 0) {
+                    end = text.length();
+                }
+                result.add(text.substring(i + 1, end));
+                i = end + 1;
+            } else {
+                i++;
+            }
+        }
+        return result;
+    }
+
+    private boolean readTag(int nameStart, TokenType tagType) {
+        int length = html.length();
+        int i = nameStart;
+        while (i < length && !isWhitespace(html.charAt(i)) && html.charAt(i) != '/' && html.charAt(i) != '>') {
+            i++;
+        }
+        String tagName = html.substring(nameStart, i).toLowerCase(Locale.ENGLISH);
+        Attributes tagAttributes = new Attributes();
+        boolean tagSelfClosing = false;
+        while (true) {
+            while (i < length && isWhitespace(html.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                // jsoup drops a tag which is not terminated
+                pos = length;
+                type = TokenType.EOF;
+                return true;
+            }
+            char c = html.charAt(i);
+            if (c == '>') {
+                i++;
+                break;
+            }
+            if (c == '/') {
+                i++;
+                if (i < length && html.charAt(i) == '>') {
+                    tagSelfClosing = true;
+                    i++;
+                    break;
+                }
+                continue;
+            }
+            int attrStart = i++;
+            while (i < length && !isWhitespace(html.charAt(i)) && "/>=".indexOf(html.charAt(i)) < 0) {
+                i++;
+            }
+            String attrName = html.substring(attrStart, i).toLowerCase(Locale.ENGLISH);
+            while (i < length && isWhitespace(html.charAt(i))) {
+                i++;
+            }
+            String value = "";
+            if (i < length && html.charAt(i) == '=') {
+                i++;
+                while (i < length && isWhitespace(html.charAt(i))) {
+                    i++;
+                }
+                if (i < length && (html.charAt(i) == '"' || html.charAt(i) == '\'')) {
+                    int end = html.indexOf(html.charAt(i), i + 1);
+                    if (end < 0) {
+                        end = length;
+                    }
+                    value = html.substring(i + 1, end);
+                    i = Math.min(end + 1, length);
+                } else {
+                    int valueStart = i;
+                    while (i < length && !isWhitespace(html.charAt(i)) && html.charAt(i) != '>') {
+                        i++;
+                    }
+                    value = html.substring(valueStart, i);
+                }
+                value = Parser.unescapeEntities(value, true);
+            }
+            if (tagType == TokenType.START) {
+                tagAttributes.put(attrName, value);
+            }
+        }
+        pos = i;
+        type = tagType;
+        name = tagName;
+        attributes = tagAttributes;
+        selfClosing = tagSelfClosing;
+        if (tagType == TokenType.START && !tagSelfClosing && (RAW_TEXT.contains(tagName) || RC_DATA.contains(tagName))) {
+            rawTextEnd = tagName;
+        }
+        return true;
+    }
+
+    private void readRawText() {
+        String endName = rawTextEnd;
+        rawTextEnd = null;
+        int length = html.length();
+        int end = pos;
+        while (true) {
+            end = html.indexOf("</", end);
+            if (end < 0) {
+                end = length;
+                break;
+            }
+            int after = end + 2 + endName.length();
+            if (html.regionMatches(true, end + 2, endName, 0, endName.length())
+                    && (after == length || isWhitespace(html.charAt(after)) || html.charAt(after) == '/'
+                    || html.charAt(after) == '>')) {
+                break;
+            }
+            end += 2;
+        }
+        if (end == pos) {
+            read();
+            return;
+        }
+        String content = html.substring(pos, end);
+        pos = end;
+        if (RC_DATA.contains(endName)) {
+            type = TokenType.TEXT;
+            data = Parser.unescapeEntities(content, false);
+        } else {
+            type = TokenType.DATA;
+            data = content;
+        }
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r';
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    /**
+     * Stops parsing at a construct jsoup builds by moving already parsed nodes.
+     */
+    private static final class MovedNodesException extends RuntimeException {
+
+        MovedNodesException() {
+            super(null, null, false, false);
+        }
+    }
+
+}
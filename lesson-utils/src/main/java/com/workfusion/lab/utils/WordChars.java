@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) WorkFusion 2018. All rights reserved.
+ */
+package com.workfusion.lab.utils;
+
+/**
+ * Checks of the ASCII {@code \w} word characters, i.e. {@code [a-zA-Z_0-9]}, shared by the scanning annotators so
+ * they split the text at the same places as the {@code \w+} token regex.
+ */
+public final class WordChars {
+
+    private WordChars() {
+    }
+
+    /**
+     * Returns true if the character belongs to the {@code \w} class.
+     */
+    public static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z')
+                || (c >= 'A' && c <= 'Z')
+                || (c >= '0' && c <= '9')
+                || c == '_';
+    }
+
+    /**
+     * Returns true if the offset is at a {@code \b} word boundary: the start or end of the text, or between a word
+     * and a non-word character.
+     */
+    public static boolean isWordBoundary(CharSequence text, int offset) {
+        return offset == 0
+                || offset == text.length()
+                || !isWordChar(text.charAt(offset - 1))
+                || !isWordChar(text.charAt(offset));
+    }
+
+}
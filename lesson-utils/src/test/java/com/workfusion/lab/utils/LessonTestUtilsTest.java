@@ -1,14 +1,55 @@
 package com.workfusion.lab.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeVisitor;
 import org.junit.Test;
 
+import com.google.gson.Gson;
+import com.workfusion.lab.model.SparseFeatureVector;
+import com.workfusion.lab.model.TestElement;
+import com.workfusion.lab.model.TestElementFactory;
+import com.workfusion.lab.model.TestField;
+import com.workfusion.lab.model.TestNamedEntity;
+import com.workfusion.lab.model.TestTokenFeatures;
+import com.workfusion.vds.sdk.api.nlp.fe.Feature;
+import com.workfusion.vds.sdk.api.nlp.fe.FeatureExtractor;
+import com.workfusion.vds.sdk.api.nlp.model.Document;
+import com.workfusion.vds.sdk.api.nlp.model.Element;
 import com.workfusion.vds.sdk.api.nlp.model.Field;
 import com.workfusion.vds.sdk.api.nlp.model.IeDocument;
+import com.workfusion.vds.sdk.api.nlp.model.NamedEntity;
 import com.workfusion.vds.sdk.api.nlp.model.Tag;
+import com.workfusion.vds.sdk.api.nlp.model.Token;
+import com.workfusion.vds.sdk.nlp.component.util.DocumentFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 
 public class LessonTestUtilsTest {
 
@@ -26,5 +67,597 @@ public class LessonTestUtilsTest {
 
     }
 
+    @Test
+    public void getDocumentStreaming() throws Exception {
+        BaseLessonTest t = new BaseLessonTest();
+        IeDocument document = t.getDocument("documents/lesson_4_assignment_1.html", DocumentParser.Mode.STREAMING);
+        Collection<Tag> tags = document.findAll(Tag.class);
+        assertThat(tags.size()).isEqualTo(466);
+
+        t.addFields(document, "total");
+        Collection<Field> fields = document.findFields("total");
+        assertThat(fields.size()).isEqualTo(7);
+    }
+
+    @Test
+    public void getDocuments() throws Exception {
+        BaseLessonTest t = new BaseLessonTest();
+        List<IeDocument> documents = t.getDocuments("documents");
+        assertThat(documents).hasSize(1);
+        assertThat(documents.get(0).findAll(Tag.class)).hasSize(466);
+
+        List<IeDocument> globbed = t.getDocuments("documents/*.html", DocumentParser.Mode.STREAMING, 2);
+        assertThat(globbed).hasSize(1);
+        assertThat(globbed.get(0).getText()).isEqualTo(documents.get(0).getText());
+        assertThat(t.getDocuments("documents/*.json")).isEmpty();
+    }
+
+    @Test
+    public void addFieldsReturnsCountsPerField() throws Exception {
+        BaseLessonTest t = new BaseLessonTest();
+        IeDocument document = t.getDocument("documents/lesson_4_assignment_1.html");
+        Map<String, Integer> counts = t.addFields(document, "total", "unknown");
+        assertThat(counts).containsExactly(entry("total", 7), entry("unknown", 0));
+        assertThat(document.findFields("total")).hasSize(7);
+
+        List<IeDocument> copies = t.getDocuments("documents/*.html", DocumentParser.Mode.STREAMING, 2);
+        copies.addAll(t.getDocuments("documents/*.html", DocumentParser.Mode.STREAMING, 2));
+        assertThat(t.addFields(copies, 2, "total")).containsEntry("total", 14);
+        assertThat(copies.get(1).findFields("total")).hasSize(7);
+
+        IeDocument plain = t.getDocument("documents/lesson_4_assignment_1.html");
+        assertThat(new GoldFieldProjector(false, "total").project(plain)).containsEntry("total", 7);
+        assertThat(plain.findFields("total")).hasSize(7);
+    }
+
+    @Test
+    public void processFeaturesParallelMatchesSequential() throws Exception {
+        IeDocument document = tokenizedDocument(
+                new String(Files.readAllBytes(Paths.get("../lesson-3/lesson_3_assignment_1.txt")), StandardCharsets.UTF_8));
+        BaseLessonTest t = new BaseLessonTest();
+
+        List<TestTokenFeatures> sequential = t.processFeatures(document, new AffixFeatureExtractor());
+        List<TestTokenFeatures> parallel = t.processFeaturesParallel(document,
+                Collections.singletonList(AffixFeatureExtractor::new), 4);
+
+        assertThat(parallel).hasSameSizeAs(sequential);
+        for (int i = 0; i < sequential.size(); i++) {
+            assertThat(parallel.get(i).getElement()).isEqualTo(sequential.get(i).getElement());
+            assertThat(parallel.get(i).getFeatures()).isEqualTo(sequential.get(i).getFeatures());
+        }
+    }
+
+    @Test
+    public void featureCacheReusesContextFreeFeatures() throws Exception {
+        IeDocument document = tokenizedDocument("one two one two three one");
+        BaseLessonTest t = new BaseLessonTest();
+        List<TestTokenFeatures> uncached = t.processFeatures(document, new AffixFeatureExtractor());
+
+        FeatureCache cache = new FeatureCache(1024);
+        t.setFeatureCache(cache);
+        List<TestTokenFeatures> cached = t.processFeatures(document, new AffixFeatureExtractor());
+        assertThat(cache.getStats().getMisses()).isEqualTo(3);
+        assertThat(cache.getStats().getHits()).isEqualTo(3);
+        t.processFeatures(document, new AffixFeatureExtractor());
+        assertThat(cache.getStats().getHitRatio()).isEqualTo(0.75);
+
+        for (int i = 0; i < uncached.size(); i++) {
+            assertThat(cached.get(i).getVector()).isEqualTo(uncached.get(i).getVector());
+        }
+    }
+
+    @Test
+    public void featureCacheKeysConfiguredExtractorsByInstance() throws Exception {
+        IeDocument document = tokenizedDocument("one two one");
+        BaseLessonTest t = new BaseLessonTest();
+        FeatureCache cache = new FeatureCache(1024);
+        t.setFeatureCache(cache);
+
+        List<TestTokenFeatures> prefixes = t.processFeatures(document, new PrefixFeatureExtractor(true));
+        List<TestTokenFeatures> suffixes = t.processFeatures(document, new PrefixFeatureExtractor(false));
+        assertThat(prefixes.get(0).getFeatures()).contains(new Feature("prefix_o", 1.0));
+        assertThat(suffixes.get(0).getFeatures()).contains(new Feature("suffix_e", 1.0)).doesNotContain(new Feature("prefix_o", 1.0));
+        assertThat(cache.getStats().getMisses()).isEqualTo(4);
+        assertThat(cache.getStats().getHits()).isEqualTo(2);
+
+        assertThatThrownBy(() -> cache.isCacheable(new UnkeyedFeatureExtractor(true)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(UnkeyedFeatureExtractor.class.getName());
+    }
+
+    private static IeDocument tokenizedDocument(String text) {
+        IeDocument document = DocumentFactory.createIeDocument(text, text);
+        Matcher matcher = Pattern.compile("\\S+").matcher(text);
+        while (matcher.find()) {
+            document.add(Token.descriptor().setBegin(matcher.start()).setEnd(matcher.end()));
+        }
+        return document;
+    }
+
+    @Test
+    public void sparseFeatureVectorMatchesFeatureSet() throws Exception {
+        Set<Feature> features = new HashSet<>(Arrays.asList(new Feature("suffix_ed", 1.0), new Feature("shape_xx", 1.0),
+                new Feature("length", 7.0), new Feature("suffix_ed", 1.0)));
+        TestTokenFeatures tokenFeatures = new TestTokenFeatures();
+        tokenFeatures.setFeatures(features);
+        SparseFeatureVector vector = tokenFeatures.getVector();
+
+        assertThat(vector.size()).isEqualTo(3);
+        assertThat(vector.getValue(vector.indexOf("length"))).isEqualTo(7.0);
+        assertThat(vector.indexOf("prefix_un")).isNegative();
+        assertThat(vector.toFeatures()).isEqualTo(features);
+
+        SparseFeatureVector reordered = SparseFeatureVector.of(Arrays.asList(new Feature("length", 7.05),
+                new Feature("shape_xx", 1.0), new Feature("suffix_ed", 1.0)));
+        assertThat(reordered.matches(vector, 0.1)).isTrue();
+        assertThat(reordered.matches(vector, 0.01)).isFalse();
+        assertThat(SparseFeatureVector.EMPTY.matches(vector, 0.1)).isFalse();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        vector.writeTo(new DataOutputStream(bytes));
+        assertThat(SparseFeatureVector.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), null))
+                .isEqualTo(vector);
+
+        // Features set as a vector are only kept as sets when converted for the JSON pattern files
+        TestTokenFeatures vectorFeatures = new TestTokenFeatures();
+        vectorFeatures.setVector(vector);
+        assertThat(vectorFeatures.getFeatures()).isEqualTo(features);
+        assertThat(new Gson().toJson(vectorFeatures)).doesNotContain("\"features\"");
+        assertThatThrownBy(() -> vectorFeatures.getFeatures().clear()).isInstanceOf(UnsupportedOperationException.class);
+        List<TestTokenFeatures> serializable = TestTokenFeatures.toSerializable(Collections.singletonList(vectorFeatures));
+        assertThat(new Gson().toJson(serializable)).contains("\"features\"", "suffix_ed", "shape_xx");
+        assertThat(serializable.get(0).getVector()).isEqualTo(vector);
+        assertThat(new Gson().toJson(vectorFeatures)).doesNotContain("\"features\"");
+    }
+
+    @Test
+    public void streamingParserMatchesDom() throws Exception {
+        for (String path : new String[] {"documents/lesson_4_assignment_1.html", "../lesson-3/lesson_3_assignment_3.html"}) {
+            assertStreamingMatchesDom(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void streamingParserMatchesDomOnMisnestedHtml() {
+        // Formatting elements reopened after blocks and cells, and misnested formatting end tags
+        List<String> streamed = Arrays.asList(
+                "<p><b>bold<p>still bold</b> after",
+                "<b><i>x</b>y</i>z",
+                "<p><font color=red>a</p><p>b</p></font>c",
+                "<table><tr><td><b>a</td><td>b</b></td></tr></table>c",
+                "<a href=x>1<a href=y>2</a>",
+                "<p><b class=a><b class=a><b class=a><b class=a>x<p>y",
+                "<b/>x<i/>y",
+                "<nobr>a<nobr>b</nobr>");
+        // Constructs jsoup builds by moving parsed nodes, parsed as DOM
+        List<String> moved = Arrays.asList(
+                "<b>x<p>y</b>z",
+                "<font color=red><p>a<p>b</font>c",
+                "<table>stray text<tr><td>1</td></tr></table>",
+                "<table><b>bold</b><tr><td>1</td></tr></table>",
+                "<head><title>t</title></head> <meta charset=utf-8><body>x",
+                "<p>x<body class=y>");
+        for (String html : streamed) {
+            assertThat(isStreamed(html)).as(html).isTrue();
+            assertStreamingMatchesDom(html);
+        }
+        for (String html : moved) {
+            assertThat(isStreamed(html)).as(html).isFalse();
+            long fallbacks = DocumentParser.getStreamingFallbackCount();
+            assertStreamingMatchesDom(html);
+            assertThat(DocumentParser.getStreamingFallbackCount()).isEqualTo(fallbacks + 1);
+        }
+    }
+
+    /**
+     * Differential test of the STREAMING mode against the jsoup DOM on seeded random tag soup, mixing formatting,
+     * block, table, head and void elements, misnested end tags and self-closing tags.
+     */
+    @Test
+    public void streamingParserMatchesDomOnRandomHtml() {
+        String[] parts = {"<b>", "</b>", "<i>", "</i>", "<p>", "</p>", "<div>", "</div>", "<table>", "</table>", "<tr>",
+                "<td>", "</td>", "</tr>", "<a href=x>", "</a>", "<font size=2>", "</font>", "<span>", "</span>", "<ul>",
+                "<li>", "</ul>", " ", "x", "y z", "\n", "&amp;", "<br>", "<u>", "</u>", "<h1>", "</h1>", "<caption>",
+                "<tbody>", "<th>", "<object>", "</object>", "<nobr>", "</nobr>", "<em>", "</em>", "<strong>", "</strong>",
+                "<b class=a>", "<b class=b>", "<b/>", "<i/>", "<table/>", "<input type=hidden>", "<input>", "<!--c-->",
+                "</caption>", "<col>", "<colgroup>", "<hr>", "<img src=a>", "<option>", "<dd>", "<dt>", "<dl>", "<h2>",
+                "</h2>", "<pre>", "</pre>", "<button>", "</button>", "<marquee>", "</marquee>", "<head>",
+                "<title>t</title>", "<meta charset=x>", "<body class=z>", "<html lang=en>", "</body>", "</html>",
+                "<select>", "<br/>", "</br>", "<thead>", "</tbody>", "<tfoot>", "</th>", "<s>", "<tt>", "</s>", "<code>",
+                "<small>", "<big>", "</td></tr>", "<script>x</script>", "<style>y</style>", "<textarea>q</textarea>",
+                "</li>", "<ol>", "</ol>", "<center>", "</center>"};
+        Random random = new Random(20180101);
+        boolean quiet = LessonLogger.isQuiet();
+        LessonLogger.setQuiet(true); // drops the per-document fallback lines
+        try {
+            for (int i = 0; i < 20000; i++) {
+                StringBuilder html = new StringBuilder();
+                for (int length = 1 + random.nextInt(25); length > 0; length--) {
+                    html.append(parts[random.nextInt(parts.length)]);
+                }
+                try {
+                    assertStreamingMatchesDom(html.toString());
+                } catch (AssertionError e) {
+                    throw new AssertionError("Snippet " + i + ": " + html, e);
+                }
+            }
+        } finally {
+            LessonLogger.setQuiet(quiet);
+        }
+    }
+
+    private static boolean isStreamed(String html) {
+        return new StreamingHtmlParser(html, new NodeVisitor() {
+            @Override
+            public void head(Node node, int depth) {
+            }
+
+            @Override
+            public void tail(Node node, int depth) {
+            }
+        }).parse();
+    }
+
+    private static void assertStreamingMatchesDom(String html) {
+        DocumentParser.DocumentContent dom = new DocumentParser(DocumentParser.Mode.DOM).prepareDocumentContent(html);
+        DocumentParser.DocumentContent streaming = new DocumentParser(DocumentParser.Mode.STREAMING).prepareDocumentContent(html);
+
+        assertThat(streaming.getText()).isEqualTo(dom.getText());
+        List<DocumentParser.Tag> expected = dom.getTags();
+        List<DocumentParser.Tag> actual = streaming.getTags();
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getName()).isEqualTo(expected.get(i).getName());
+            assertThat(actual.get(i).getBegin()).isEqualTo(expected.get(i).getBegin());
+            assertThat(actual.get(i).getEnd()).isEqualTo(expected.get(i).getEnd());
+            assertThat(actual.get(i).getText()).isEqualTo(expected.get(i).getText());
+            assertThat(actual.get(i).getAttr()).isEqualTo(expected.get(i).getAttr());
+        }
+    }
+
+    @Test
+    public void normalizedTextMatchesReplaceAll() throws Exception {
+        Path path = Paths.get("documents/lesson_4_assignment_1.html");
+        String raw = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertThat(NormalizedText.read(path).getText()).isEqualTo(raw.replaceAll("(\\r\\n|\\r|\\n)+", "\r\n"));
+
+        // Small buffers split multi-byte sequences and newline runs between chunks
+        Path mixed = Files.createTempFile("normalized", ".txt");
+        try {
+            raw = "a\r\n\r\nb\u00e9\rc\n\n\n\u20ac\r\n\ud834\udd1e\n";
+            Files.write(mixed, raw.getBytes(StandardCharsets.UTF_8));
+            NormalizedText text = NormalizedText.read(mixed, 4);
+            assertThat(text.getText()).isEqualTo("a\r\nb\u00e9\r\nc\r\n\u20ac\r\n\ud834\udd1e\r\n");
+            assertThat(text.toRawOffset(0)).isEqualTo(0);
+            assertThat(text.toRawOffset(3)).isEqualTo(5);
+            assertThat(text.toRawOffset(7)).isEqualTo(8);
+            assertThat(text.toRawOffset(10)).isEqualTo(12);
+            assertThat(text.toRawOffset(text.getText().length())).isEqualTo(raw.length());
+        } finally {
+            Files.delete(mixed);
+        }
+    }
+
+    @Test
+    public void getDocumentKeepsRawOffsets() throws Exception {
+        Path path = Files.createTempFile("normalized", ".txt");
+        try {
+            String raw = "first\n\nsecond\rthird";
+            Files.write(path, raw.getBytes(StandardCharsets.UTF_8));
+            NormalizedText text = NormalizedText.read(path);
+            IeDocument document = new BaseLessonTest().getDocument(path.toString(), text, DocumentParser.Mode.DOM);
+
+            assertThat(document.getContent()).isEqualTo("first\r\nsecond\r\nthird");
+            assertThat(text.toRawOffset(document.getText().indexOf("third"))).isEqualTo(raw.indexOf("third"));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void elementIndexMatchesDocumentLookups() throws Exception {
+        IeDocument document = new BaseLessonTest().getDocument("documents/lesson_4_assignment_1.html");
+        ElementIndex<Tag> index = ElementIndex.of(document, Tag.class);
+        assertThat(index.size()).isEqualTo(466);
+
+        for (Tag tag : document.findAll(Tag.class)) {
+            assertThat(index.findCovered(tag)).containsExactlyInAnyOrderElementsOf(document.findCovered(Tag.class, tag));
+            assertThat(index.findCovering(tag)).containsExactlyInAnyOrderElementsOf(document.findCovering(Tag.class, tag));
+        }
+    }
+
+    @Test
+    public void prepareDocumentContentWrapsAtMaxWidth() {
+        String html = "<p>aaa bbb ccc</p>";
+        assertThat(new DocumentParser().prepareDocumentContent(html).getText()).isEqualTo("\naaa bbb ccc\n");
+        assertThat(new DocumentParser(DocumentParser.Mode.DOM, 7).prepareDocumentContent(html).getText())
+                .isEqualTo("\naaa \nbbb ccc\n");
+    }
+
+    @Test
+    public void goldenFileVerifierReportsAllDiffs() throws Exception {
+        IeDocument document = DocumentFactory.createIeDocument("abc def ghi", "abc def ghi");
+        document.add(Token.descriptor().setBegin(8).setEnd(11));
+        document.add(Token.descriptor().setBegin(0).setEnd(3));
+        document.add(Token.descriptor().setBegin(4).setEnd(7));
+        String golden = "{\"@type\":\"java.util.ArrayList\",\"@items\":["
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":0,\"end\":3,\"text\":\"abc\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":4,\"end\":7,\"text\":\"dex\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":12,\"end\":15,\"text\":\"jkl\"}]}";
+
+        GoldenFileVerifier.Report report = GoldenFileVerifier.verify(new ArrayList<>(document.findAll(Token.class)),
+                new ByteArrayInputStream(golden.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(report.getExpectedCount()).isEqualTo(3);
+        assertThat(report.getActualCount()).isEqualTo(3);
+        assertThat(report.getDiffs()).extracting(GoldenFileVerifier.Diff::getType).containsExactly(
+                GoldenFileVerifier.DiffType.MISMATCHED,
+                GoldenFileVerifier.DiffType.EXTRA,
+                GoldenFileVerifier.DiffType.MISSING);
+        assertThat(report.getDiffs().get(0).getActual().getText()).isEqualTo("def");
+    }
+
+    @Test
+    public void goldenFileVerifierPairsElementsWithSameSpan() throws Exception {
+        IeDocument document = DocumentFactory.createIeDocument("abc def", "abc def");
+        document.add(NamedEntity.descriptor().setBegin(0).setEnd(3).setType("first"));
+        document.add(NamedEntity.descriptor().setBegin(0).setEnd(3).setType("second"));
+        document.add(NamedEntity.descriptor().setBegin(4).setEnd(7).setType("word"));
+        String golden = "{\"@type\":\"java.util.ArrayList\",\"@items\":["
+                + "{\"@type\":\"com.workfusion.lab.model.TestNamedEntity\",\"type\":\"second\",\"begin\":0,\"end\":3,\"text\":\"abc\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestNamedEntity\",\"type\":\"third\",\"begin\":0,\"end\":3,\"text\":\"abc\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":4,\"end\":7,\"text\":\"def\"}]}";
+
+        GoldenFileVerifier.Report report = GoldenFileVerifier.verify(new ArrayList<>(document.findAll(NamedEntity.class)),
+                new ByteArrayInputStream(golden.getBytes(StandardCharsets.UTF_8)));
+
+        // The equal "second" entities are paired, a token and an entity are not
+        assertThat(report.getDiffs()).extracting(GoldenFileVerifier.Diff::getType).containsExactly(
+                GoldenFileVerifier.DiffType.MISMATCHED,
+                GoldenFileVerifier.DiffType.MISSING,
+                GoldenFileVerifier.DiffType.EXTRA);
+        assertThat(((TestNamedEntity) report.getDiffs().get(0).getExpected()).getType()).isEqualTo("third");
+        assertThat(((TestNamedEntity) report.getDiffs().get(0).getActual()).getType()).isEqualTo("first");
+    }
+
+    @Test
+    public void goldenFileVerifierReportsMisorderedElements() throws Exception {
+        IeDocument document = DocumentFactory.createIeDocument("abc def", "abc def");
+        document.add(Token.descriptor().setBegin(0).setEnd(3));
+        document.add(Token.descriptor().setBegin(4).setEnd(7));
+        List<Token> tokens = new ArrayList<>(document.findAll(Token.class));
+        Collections.reverse(tokens);
+        String golden = "{\"@type\":\"java.util.ArrayList\",\"@items\":["
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":0,\"end\":3,\"text\":\"abc\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestElement\",\"begin\":4,\"end\":7,\"text\":\"def\"}]}";
+
+        GoldenFileVerifier.Report report = GoldenFileVerifier.verify(tokens,
+                new ByteArrayInputStream(golden.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(report.getDiffs()).extracting(GoldenFileVerifier.Diff::getType).containsExactly(
+                GoldenFileVerifier.DiffType.MISORDERED);
+        assertThat(report.getDiffs().get(0).getActual().getText()).isEqualTo("abc");
+    }
+
+    @Test
+    public void elementSnapshotRoundTrip() throws Exception {
+        String json = "{\"@type\":\"java.util.ArrayList\",\"@items\":["
+                + "{\"@type\":\"com.workfusion.lab.model.TestSentence\",\"begin\":0,\"end\":11,\"text\":\"abc def ghi\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestNamedEntity\",\"type\":\"word\",\"begin\":0,\"end\":3,\"text\":\"abc\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestNamedEntity\",\"type\":\"word\",\"begin\":4,\"end\":7,\"text\":\"def\"},"
+                + "{\"@type\":\"com.workfusion.lab.model.TestField\",\"name\":\"total\",\"value\":\"ghi\",\"score\":0.50,\"begin\":8,\"end\":11,\"text\":\"ghi\"}]}";
+        Path source = Files.createTempFile("golden", ".json");
+        Path target = Files.createTempFile("golden", ".bin");
+        try {
+            Files.write(source, json.getBytes(StandardCharsets.UTF_8));
+            ElementSnapshot.convert(source, target, true);
+            byte[] snapshot = Files.readAllBytes(target);
+            assertThat(snapshot.length).isLessThan(json.length() / 3);
+
+            List<TestElement> expected = new ArrayList<>();
+            try (ElementSource reader = new GoldenJsonReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))) {
+                TestElement element;
+                while ((element = reader.next()) != null) {
+                    expected.add(element);
+                }
+            }
+            List<TestElement> actual = ElementSnapshot.read(new ByteArrayInputStream(snapshot));
+            assertThat(actual).extracting(Object::getClass).containsExactlyElementsOf(
+                    expected.stream().map(Object::getClass).collect(Collectors.toList()));
+            assertThat(actual).containsExactlyElementsOf(expected);
+            assertThat(((TestField) actual.get(3)).getScore()).isEqualTo(new BigDecimal("0.50"));
+
+            snapshot[snapshot.length - 6] ^= 1;
+            assertThatThrownBy(() -> ElementSnapshot.read(new ByteArrayInputStream(snapshot)))
+                    .isInstanceOf(IOException.class);
+        } finally {
+            Files.delete(source);
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void lessonLoggerFormats() {
+        assertThat(LessonLogger.format("Checking number of tokens: {0} <-- {1}", 3, 4)).isEqualTo("Checking number of tokens: 3 <-- 4");
+        assertThat(LessonLogger.format("{1} {0} {1}", "a", "b")).isEqualTo("b a b");
+        assertThat(LessonLogger.format("{} and {}", "a", "b")).isEqualTo("a and b");
+        assertThat(LessonLogger.format("It''s '{0}' {0}", "a")).isEqualTo("It's {0} a");
+        assertThat(LessonLogger.format("{0} {2}", "a", "b", "c")).isEqualTo("a c");
+        assertThat(LessonLogger.format("{0} {1}", "a")).isEqualTo("a {1}");
+        assertThat(LessonLogger.format("{name}")).isEqualTo("{name}");
+    }
+
+    @Test
+    public void componentMetrics() throws Exception {
+        boolean enabled = ComponentMetrics.isEnabled();
+        ComponentMetrics.setEnabled(false);
+        ComponentMetrics.reset();
+        try {
+            assertThat(ComponentMetrics.start()).isNull();
+
+            ComponentMetrics.setEnabled(true);
+            DocumentParser parser = new DocumentParser();
+            for (int i = 0; i < 10; i++) {
+                ComponentMetrics.Probe probe = ComponentMetrics.start();
+                parser.prepareDocumentContent("<p>aaa bbb ccc</p>");
+                ComponentMetrics.stop(probe, parser);
+            }
+            ComponentMetrics.ComponentSnapshot snapshot = ComponentMetrics.snapshot().get(DocumentParser.class.getName());
+            assertThat(snapshot.getWallTimeNanos().getCount()).isEqualTo(10);
+            assertThat(snapshot.getWallTimeNanos().getP50()).isPositive();
+            assertThat(snapshot.getWallTimeNanos().getP99()).isLessThanOrEqualTo(snapshot.getWallTimeNanos().getMax());
+            assertThat(ComponentMetrics.toJson()).contains(DocumentParser.class.getName());
+        } finally {
+            ComponentMetrics.setEnabled(enabled);
+            ComponentMetrics.reset();
+        }
+    }
+
+    @Test
+    public void corpusStoreRoundTrip() throws Exception {
+        BaseLessonTest t = new BaseLessonTest();
+        IeDocument html = t.getDocument("documents/lesson_4_assignment_1.html");
+        t.addFields(html, "total");
+        IeDocument plain = DocumentFactory.createIeDocument("abc def", "abc def");
+        plain.add(Token.descriptor().setBegin(0).setEnd(3));
+        plain.add(Token.descriptor().setBegin(4).setEnd(7));
+
+        Path path = Files.createTempFile("corpus", ".bin");
+        try {
+            try (CorpusStore.Writer writer = CorpusStore.append(path)) {
+                assertThat(writer.append(html)).isEqualTo(0);
+            }
+            try (CorpusStore.Writer writer = CorpusStore.append(path)) {
+                assertThat(writer.append(plain)).isEqualTo(1);
+            }
+
+            try (CorpusStore store = CorpusStore.open(path)) {
+                assertThat(store.size()).isEqualTo(2);
+                CorpusStore.StoredDocument stored = store.get(0);
+                assertThat(stored.getText().toString()).isEqualTo(html.getText());
+                assertThat(stored.getContent().toString()).isEqualTo(html.getContent());
+                for (Class<? extends Element> type : CorpusStore.STORED_TYPES) {
+                    assertThat(stored.getElements(type).size()).as(type.getSimpleName()).isEqualTo(html.findAll(type).size());
+                }
+
+                CorpusStore.ElementTable tags = stored.getElements(Tag.class);
+                int index = 0;
+                for (Tag tag : html.findAll(Tag.class)) {
+                    assertThat(tags.getName(index)).isEqualTo(tag.getName());
+                    assertThat(tags.getAttributes(index)).isEqualTo(tag.getAttributes());
+                    assertThat(tags.getText(index).toString()).isEqualTo(tag.getText());
+                    index++;
+                }
+                CorpusStore.ElementTable fields = stored.getElements(Field.class);
+                index = 0;
+                for (Field field : html.findFields("total")) {
+                    assertThat(fields.getBegin(index)).isEqualTo(field.getBegin());
+                    assertThat(fields.getValue(index)).isEqualTo(field.getValue());
+                    index++;
+                }
+                assertThatThrownBy(() -> fields.getAttributes(0)).isInstanceOf(IllegalStateException.class);
+
+                IeDocument restored = store.get(0).toDocument();
+                assertThat(restored.findAll(Field.class).stream().map(TestElementFactory::createElement).collect(Collectors.toList()))
+                        .containsExactlyElementsOf(html.findAll(Field.class).stream().map(TestElementFactory::createElement).collect(Collectors.toList()));
+                assertThat(store.get(1).toDocument().findAll(Token.class)).extracting(Token::getText).containsExactly("abc", "def");
+            }
+
+            // A torn trailing record is ignored by readers and truncated by the next writer
+            long size = Files.size(path);
+            Files.write(path, new byte[] {0, 0, 1, 0, 7}, StandardOpenOption.APPEND);
+            try (CorpusStore store = CorpusStore.open(path)) {
+                assertThat(store.size()).isEqualTo(2);
+            }
+            try (CorpusStore.Writer writer = CorpusStore.append(path)) {
+                assertThat(writer.size()).isEqualTo(2);
+            }
+            assertThat(Files.size(path)).isEqualTo(size);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void documentContentCopiesTagList() throws Exception {
+        String html = new String(Files.readAllBytes(Paths.get("documents/lesson_4_assignment_1.html")), StandardCharsets.UTF_8);
+        DocumentParser.DocumentContent content = new DocumentParser().prepareDocumentContent(html);
+        DocumentParser.DocumentContent copy = new DocumentParser.DocumentContent(content.getText(), content.getTags());
+
+        assertThat(copy.getTags()).hasSameSizeAs(content.getTags());
+        for (int i = 0; i < content.getTags().size(); i++) {
+            assertThat(copy.getTags().get(i).toString()).isEqualTo(content.getTags().get(i).toString());
+        }
+        assertThatThrownBy(() -> content.getTags().get(0).getAttr().put("key", "value"))
+                .isInstanceOf(UnsupportedOperationException.class);
+
+        Attributes attributes = new Attributes();
+        attributes.put("href", "x");
+        DocumentParser.Tag tag = new DocumentParser.Tag("a", 3, attributes);
+        assertThat(tag.getBegin()).isEqualTo(3);
+        assertThat(tag.getEnd()).isEqualTo(3);
+        assertThat(tag.getText()).isNull();
+        assertThat(tag.getAttr()).containsOnly(entry("href", "x"));
+    }
+
+    @ContextFree
+    private static class AffixFeatureExtractor implements FeatureExtractor<Token> {
+
+        @Override
+        public Collection<Feature> extract(Document document, Token token) {
+            String text = token.getText();
+            List<Feature> features = new ArrayList<>();
+            for (int length = 1; length <= 3 && length <= text.length(); length++) {
+                features.add(new Feature("prefix_" + text.substring(0, length), 1.0));
+                features.add(new Feature("suffix_" + text.substring(text.length() - length), 1.0));
+            }
+            return features;
+        }
+    }
+
+    @ContextFree
+    private static class PrefixFeatureExtractor implements FeatureExtractor<Token> {
+
+        private final boolean prefix;
+
+        PrefixFeatureExtractor(boolean prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Collection<Feature> extract(Document document, Token token) {
+            String text = token.getText();
+            return Collections.singletonList(prefix
+                    ? new Feature("prefix_" + text.charAt(0), 1.0)
+                    : new Feature("suffix_" + text.charAt(text.length() - 1), 1.0));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PrefixFeatureExtractor && ((PrefixFeatureExtractor) obj).prefix == prefix;
+        }
+
+        @Override
+        public int hashCode() {
+            return Boolean.hashCode(prefix);
+        }
+    }
+
+    @ContextFree
+    private static class UnkeyedFeatureExtractor implements FeatureExtractor<Token> {
+
+        private final boolean lowerCase;
+
+        UnkeyedFeatureExtractor(boolean lowerCase) {
+            this.lowerCase = lowerCase;
+        }
+
+        @Override
+        public Collection<Feature> extract(Document document, Token token) {
+            String text = lowerCase ? token.getText().toLowerCase() : token.getText();
+            return Collections.singletonList(new Feature("word_" + text, 1.0));
+        }
+    }
 
 }